@@ -8,6 +8,8 @@ public class Node {
   private final String host;
   private final int port;
   private boolean active;
+  private volatile boolean draining;
+  private final NodeMetrics metrics = new NodeMetrics();
 
   public Node(String id, String host, int port) {
     this.id = id;
@@ -36,6 +38,19 @@ public class Node {
     this.active = active;
   }
 
+  /** A draining node gets no new requests and is stopped once its in-flight requests finish */
+  public boolean isDraining() {
+    return draining;
+  }
+
+  public void setDraining(boolean draining) {
+    this.draining = draining;
+  }
+
+  public NodeMetrics getMetrics() {
+    return metrics;
+  }
+
   public String getAddress() {
     return host + ":" + port;
   }
@@ -57,6 +72,6 @@ public class Node {
 
   @Override
   public String toString() {
-    return "Node{" + "id='" + id + '\'' + ", address='" + getAddress() + '\'' + ", active=" + active + '}';
+    return "Node{" + "id='" + id + '\'' + ", address='" + getAddress() + '\'' + ", active=" + active + ", draining=" + draining + '}';
   }
 }
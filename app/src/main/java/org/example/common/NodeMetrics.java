@@ -0,0 +1,60 @@
+package org.example.common;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.metrics.RateCounter;
+import org.example.metrics.RequestLatency;
+
+/**
+ * Per-node traffic counters, allocated with the node and reached straight from it, so the request path never looks a
+ * node up by id. Counters are striped {@link LongAdder}s so concurrent requests to a hot node do not contend.
+ */
+public class NodeMetrics {
+
+  private final long startTime = System.currentTimeMillis();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+  private final RateCounter requestRate = new RateCounter();
+  private final RequestLatency latency = new RequestLatency();
+
+  public void recordRequest() {
+    requests.increment();
+    requestRate.increment();
+  }
+
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  public void incrementInFlight() {
+    inFlight.increment();
+  }
+
+  public void decrementInFlight() {
+    inFlight.decrement();
+  }
+
+  /** Requests or TCP connections currently open to this node */
+  public int getInFlight() {
+    return (int) inFlight.sum();
+  }
+
+  /** Latency of requests served by this node */
+  public RequestLatency getLatency() {
+    return latency;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /** Requests per second in the last completed second */
+  public double getRequestsPerSecond() {
+    return requestRate.getRate(1);
+  }
+
+  /** Sliding-window request rates for this node */
+  public RateCounter getRequestRate() {
+    return requestRate;
+  }
+}
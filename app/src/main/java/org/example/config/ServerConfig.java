@@ -3,6 +3,8 @@ package org.example.config;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 /** Configuration reader for the load balancer */
@@ -29,6 +31,29 @@ public class ServerConfig {
     return Integer.parseInt(properties.getProperty("server.starting.port", "8081"));
   }
 
+  /** How long a new backend has to answer /health before its startup counts as failed */
+  public long getServerStartupTimeoutMs() {
+    return Long.parseLong(properties.getProperty("server.startup.timeout.ms", "15000"));
+  }
+
+  public long getServerReadinessPollMs() {
+    return Long.parseLong(properties.getProperty("server.readiness.poll.ms", "50"));
+  }
+
+  /** Warm servers kept started outside the ring for scale-up to promote; 0 disables the pool */
+  public int getStandbyPoolSize() {
+    return Integer.parseInt(properties.getProperty("standby.pool.size", "0"));
+  }
+
+  public int getStandbyWarmupRequests() {
+    return Integer.parseInt(properties.getProperty("standby.warmup.requests", "1000"));
+  }
+
+  /** Whether removed servers return to the standby pool, when it has room, instead of being stopped */
+  public boolean isStandbyDemoteEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("standby.demote", "true"));
+  }
+
   public int getLoadBalancerPort() {
     return Integer.parseInt(properties.getProperty("loadbalancer.port", "8080"));
   }
@@ -69,6 +94,263 @@ public class ServerConfig {
     return Double.parseDouble(properties.getProperty("autoscaling.target.avg.req.per.second", "100"));
   }
 
+  /** threshold (react to the last interval) or forecast (Holt-Winters, scaling ahead of demand) */
+  public String getAutoScalingPolicy() {
+    return properties.getProperty("autoscaling.policy", "threshold").trim();
+  }
+
+  public long getAutoScalingCooldownMs() {
+    return Long.parseLong(properties.getProperty("autoscaling.cooldown.ms", "5000"));
+  }
+
+  public double getForecastAlpha() {
+    return Double.parseDouble(properties.getProperty("autoscaling.forecast.alpha", "0.5"));
+  }
+
+  public double getForecastBeta() {
+    return Double.parseDouble(properties.getProperty("autoscaling.forecast.beta", "0.3"));
+  }
+
+  public double getForecastGamma() {
+    return Double.parseDouble(properties.getProperty("autoscaling.forecast.gamma", "0.1"));
+  }
+
+  /** Length of the traffic season in seconds; 0 forecasts level and trend only */
+  public int getForecastSeasonSeconds() {
+    return Integer.parseInt(properties.getProperty("autoscaling.forecast.season.seconds", "0"));
+  }
+
+  public double getForecastHysteresis() {
+    return Double.parseDouble(properties.getProperty("autoscaling.forecast.hysteresis", "0.2"));
+  }
+
+  public int getForecastScaleDownChecks() {
+    return Integer.parseInt(properties.getProperty("autoscaling.forecast.scale.down.checks", "3"));
+  }
+
+  /** p99 end-to-end latency objective of the slo policy */
+  public double getSloP99Ms() {
+    return Double.parseDouble(properties.getProperty("autoscaling.slo.p99.ms", "100"));
+  }
+
+  public double getSloTargetUtilization() {
+    return Double.parseDouble(properties.getProperty("autoscaling.slo.target.utilization", "0.7"));
+  }
+
+  public double getSloHeadroom() {
+    return Double.parseDouble(properties.getProperty("autoscaling.slo.headroom", "0.3"));
+  }
+
+  public int getSloScaleDownChecks() {
+    return Integer.parseInt(properties.getProperty("autoscaling.slo.scale.down.checks", "3"));
+  }
+
+  /** Requests one backend serves at once, used for utilization when concurrency limiting is off */
+  public int getSloNodeCapacity() {
+    return Integer.parseInt(properties.getProperty("autoscaling.slo.node.capacity", "10"));
+  }
+
+  public boolean isTcpProxyEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("tcp.enabled", "false"));
+  }
+
+  public int getTcpProxyPort() {
+    return Integer.parseInt(properties.getProperty("tcp.port", "8090"));
+  }
+
+  public String getTcpHashMode() {
+    return properties.getProperty("tcp.hash.mode", "client-address");
+  }
+
+  public int getTcpHashPrefixBytes() {
+    return Integer.parseInt(properties.getProperty("tcp.hash.prefix.bytes", "64"));
+  }
+
+  public int getTcpBufferSize() {
+    return Integer.parseInt(properties.getProperty("tcp.buffer.size", "65536"));
+  }
+
+  public boolean isCoalescingEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("coalescing.enabled", "false"));
+  }
+
+  public long getCoalescingMaxWaitMs() {
+    return Long.parseLong(properties.getProperty("coalescing.max.wait.ms", "1000"));
+  }
+
+  /** Request headers that take part in the coalescing key, so requests differing in them are never merged */
+  public List<String> getCoalescingKeyHeaders() {
+    String value = properties.getProperty("coalescing.key.headers", "Accept,Accept-Encoding,Authorization,Cookie");
+    return Arrays.stream(value.split(",")).map(String::trim).filter(h -> !h.isEmpty()).toList();
+  }
+
+  public boolean isCacheEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("cache.enabled", "false"));
+  }
+
+  public long getCacheMaxBytes() {
+    return Long.parseLong(properties.getProperty("cache.max.bytes", "67108864"));
+  }
+
+  public long getCacheDefaultTtlSeconds() {
+    return Long.parseLong(properties.getProperty("cache.default.ttl.seconds", "0"));
+  }
+
+  public String getCacheOnNodeRemoval() {
+    return properties.getProperty("cache.on.node.removal", "migrate");
+  }
+
+  public int getFailoverMaxRetries() {
+    return Integer.parseInt(properties.getProperty("failover.max.retries", "1"));
+  }
+
+  public double getRetryBudgetRatio() {
+    return Double.parseDouble(properties.getProperty("failover.retry.budget.ratio", "0.1"));
+  }
+
+  public int getRetryBudgetMaxTokens() {
+    return Integer.parseInt(properties.getProperty("failover.retry.budget.max.tokens", "10"));
+  }
+
+  public boolean isHedgingEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("hedging.enabled", "false"));
+  }
+
+  public double getHedgingPercentile() {
+    return Double.parseDouble(properties.getProperty("hedging.percentile", "95"));
+  }
+
+  public long getHedgingMinDelayMs() {
+    return Long.parseLong(properties.getProperty("hedging.min.delay.ms", "5"));
+  }
+
+  public boolean isCircuitBreakerEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("circuit.breaker.enabled", "true"));
+  }
+
+  public int getCircuitBreakerConsecutiveFailures() {
+    return Integer.parseInt(properties.getProperty("circuit.breaker.consecutive.failures", "5"));
+  }
+
+  public double getCircuitBreakerFailureRateThreshold() {
+    return Double.parseDouble(properties.getProperty("circuit.breaker.failure.rate.threshold", "50"));
+  }
+
+  public int getCircuitBreakerMinRequests() {
+    return Integer.parseInt(properties.getProperty("circuit.breaker.min.requests", "20"));
+  }
+
+  public long getCircuitBreakerWindowMs() {
+    return Long.parseLong(properties.getProperty("circuit.breaker.window.ms", "10000"));
+  }
+
+  public long getCircuitBreakerOpenMs() {
+    return Long.parseLong(properties.getProperty("circuit.breaker.open.ms", "2000"));
+  }
+
+  public int getCircuitBreakerHalfOpenTrials() {
+    return Integer.parseInt(properties.getProperty("circuit.breaker.half.open.trials", "3"));
+  }
+
+  public boolean isConcurrencyLimitEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("concurrency.limit.enabled", "true"));
+  }
+
+  public int getConcurrencyLimitInitial() {
+    return Integer.parseInt(properties.getProperty("concurrency.limit.initial", "10"));
+  }
+
+  public int getConcurrencyLimitMin() {
+    return Integer.parseInt(properties.getProperty("concurrency.limit.min", "1"));
+  }
+
+  public int getConcurrencyLimitMax() {
+    return Integer.parseInt(properties.getProperty("concurrency.limit.max", "200"));
+  }
+
+  public int getIngressWorkers() {
+    return Integer.parseInt(properties.getProperty("ingress.workers", "20"));
+  }
+
+  public int getIngressQueueCapacity() {
+    return Integer.parseInt(properties.getProperty("ingress.queue.capacity", "1000"));
+  }
+
+  public long getIngressTargetDelayMs() {
+    return Long.parseLong(properties.getProperty("ingress.target.delay.ms", "20"));
+  }
+
+  public long getIngressIntervalMs() {
+    return Long.parseLong(properties.getProperty("ingress.interval.ms", "100"));
+  }
+
+  public boolean isSlowStartEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("slow.start.enabled", "true"));
+  }
+
+  public int getSlowStartWindowSeconds() {
+    return Integer.parseInt(properties.getProperty("slow.start.window.seconds", "30"));
+  }
+
+  public int getSlowStartInitialPercent() {
+    return Integer.parseInt(properties.getProperty("slow.start.initial.percent", "5"));
+  }
+
+  public int getSlowStartSteps() {
+    return Integer.parseInt(properties.getProperty("slow.start.steps", "10"));
+  }
+
+  public int getDrainTimeoutSeconds() {
+    return Integer.parseInt(properties.getProperty("drain.timeout.seconds", "30"));
+  }
+
+  public int getLatencyWindowSeconds() {
+    return Integer.parseInt(properties.getProperty("latency.window.seconds", "10"));
+  }
+
+  /** File the request timeline is memory-mapped to; empty keeps it in memory only */
+  public String getTimelineFile() {
+    return properties.getProperty("timeline.file", "").trim();
+  }
+
+  public boolean isHotKeysEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("hotkeys.enabled", "true"));
+  }
+
+  public int getHotKeysTopK() {
+    return Integer.parseInt(properties.getProperty("hotkeys.top.k", "10"));
+  }
+
+  public int getHotKeysDecaySeconds() {
+    return Integer.parseInt(properties.getProperty("hotkeys.decay.seconds", "30"));
+  }
+
+  public boolean isHotKeySpreadEnabled() {
+    return Boolean.parseBoolean(properties.getProperty("hotkeys.spread.enabled", "false"));
+  }
+
+  /** round-robin or p2c (power of two choices) */
+  public String getHotKeySpreadMode() {
+    return properties.getProperty("hotkeys.spread.mode", "p2c");
+  }
+
+  public double getHotKeySpreadThreshold() {
+    return Double.parseDouble(properties.getProperty("hotkeys.spread.threshold", "50"));
+  }
+
+  public int getHotKeySpreadSuccessors() {
+    return Integer.parseInt(properties.getProperty("hotkeys.spread.successors", "3"));
+  }
+
+  /** Count one in this many lookups per ring position for the skew report; 0 turns the counters off */
+  public int getVnodeStatsSampleEvery() {
+    return Integer.parseInt(properties.getProperty("vnode.stats.sample.every", "0"));
+  }
+
+  public int getVnodeStatsDecaySeconds() {
+    return Integer.parseInt(properties.getProperty("vnode.stats.decay.seconds", "60"));
+  }
+
   public String getProperty(String key, String defaultValue) {
     return properties.getProperty(key, defaultValue);
   }
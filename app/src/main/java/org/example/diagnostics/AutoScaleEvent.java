@@ -0,0 +1,32 @@
+package org.example.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** An auto-scaling action; the event duration covers adding or removing the servers */
+@Name("org.example.AutoScale")
+@Label("Auto Scale")
+@Category({ "Load Balancer", "Scaling" })
+@Enabled(false)
+@StackTrace(false)
+public class AutoScaleEvent extends Event {
+
+  @Label("Direction")
+  public String direction;
+
+  @Label("Servers Before")
+  public int serversBefore;
+
+  @Label("Servers After")
+  public int serversAfter;
+
+  @Label("Requests Per Second Per Server")
+  public double avgRequestsPerServer;
+
+  @Label("Reason")
+  public String reason;
+}
@@ -0,0 +1,29 @@
+package org.example.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A node changing health, as seen by the health check or its circuit breaker */
+@Name("org.example.HealthTransition")
+@Label("Health Transition")
+@Category({ "Load Balancer", "Health" })
+@Enabled(false)
+@StackTrace(false)
+public class HealthTransitionEvent extends Event {
+
+  @Label("Node")
+  public String node;
+
+  @Label("Source")
+  public String source;
+
+  @Label("From")
+  public String from;
+
+  @Label("To")
+  public String to;
+}
@@ -0,0 +1,75 @@
+package org.example.diagnostics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+/**
+ * Starts, dumps and stops one on-demand flight recording with the load balancer's own events enabled. The events are
+ * disabled in every standard JFR configuration, so outside such a recording they cost a check of a static flag.
+ */
+public class JfrController {
+
+  private static final Logger LOGGER = Logger.getLogger(JfrController.class.getName());
+
+  private static final List<Class<? extends Event>> EVENTS = List.of(RingLookupEvent.class,
+    UpstreamForwardEvent.class, HealthTransitionEvent.class, RingRebuildEvent.class, AutoScaleEvent.class);
+
+  private Recording recording;
+
+  /**
+   * Start a recording on top of a JDK configuration ("default" or "profile"), keeping at most maxAge of data. Returns
+   * false if one is already running.
+   */
+  public synchronized boolean start(String configuration, Duration maxAge) throws IOException, ParseException {
+    if (recording != null) {
+      return false;
+    }
+    Recording started = new Recording(Configuration.getConfiguration(configuration));
+    started.setName("load-balancer");
+    started.setMaxAge(maxAge);
+    started.setToDisk(true);
+    for (Class<? extends Event> event : EVENTS) {
+      started.enable(event);
+    }
+    started.start();
+    recording = started;
+    LOGGER.log(Level.INFO, "Started JFR recording ({0} settings, max age {1}s)",
+      new Object[] { configuration, maxAge.toSeconds() });
+    return true;
+  }
+
+  /** Copy what the running recording holds so far to a temporary .jfr file, or return null if none is running */
+  public synchronized Path dump() throws IOException {
+    if (recording == null) {
+      return null;
+    }
+    Path file = Files.createTempFile("load-balancer-", ".jfr");
+    recording.dump(file);
+    return file;
+  }
+
+  /** Stop and discard the running recording, returning false if none was running */
+  public synchronized boolean stop() {
+    if (recording == null) {
+      return false;
+    }
+    recording.close();
+    recording = null;
+    LOGGER.info("Stopped JFR recording");
+    return true;
+  }
+
+  public synchronized boolean isRecording() {
+    return recording != null;
+  }
+}
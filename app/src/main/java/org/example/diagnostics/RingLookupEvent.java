@@ -0,0 +1,28 @@
+package org.example.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A key routed through the hash ring */
+@Name("org.example.RingLookup")
+@Label("Ring Lookup")
+@Category({ "Load Balancer", "Routing" })
+@Enabled(false)
+@StackTrace(false)
+public class RingLookupEvent extends Event {
+
+  @Label("Key Hash")
+  public long keyHash;
+
+  @Label("Node")
+  public String node;
+
+  @Label("Skipped")
+  @Description("Ring positions or nodes passed over because the routing filter rejected them")
+  public int skipped;
+}
@@ -0,0 +1,23 @@
+package org.example.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** The hash ring's sorted position arrays being rebuilt after a membership or weight change */
+@Name("org.example.RingRebuild")
+@Label("Ring Rebuild")
+@Category({ "Load Balancer", "Routing" })
+@Enabled(false)
+@StackTrace(false)
+public class RingRebuildEvent extends Event {
+
+  @Label("Nodes")
+  public int nodes;
+
+  @Label("Positions")
+  public int positions;
+}
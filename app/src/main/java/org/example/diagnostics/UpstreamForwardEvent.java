@@ -0,0 +1,37 @@
+package org.example.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One HTTP request forwarded to a backend; the event duration is the upstream latency */
+@Name("org.example.UpstreamForward")
+@Label("Upstream Forward")
+@Category({ "Load Balancer", "Forwarding" })
+@Enabled(false)
+@StackTrace(false)
+public class UpstreamForwardEvent extends Event {
+
+  @Label("Node")
+  public String node;
+
+  @Label("Status")
+  @Description("HTTP status from the backend, or 0 if the call failed")
+  public int status;
+
+  @Label("Request Bytes")
+  @DataAmount
+  public long requestBytes;
+
+  @Label("Response Bytes")
+  @DataAmount
+  public long responseBytes;
+
+  @Label("Error")
+  public String error;
+}
@@ -0,0 +1,183 @@
+package org.example.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free circuit breaker for one backend, driven by live forwarding outcomes.
+ *
+ * <p>
+ * CLOSED: traffic flows; the breaker opens after too many consecutive failures or when the failure rate over the
+ * current window passes the threshold. OPEN: the node is not routable until the open period has elapsed. HALF_OPEN: a
+ * limited number of trial requests are let through; enough successes close the breaker, any failure reopens it.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String nodeId;
+  private final int consecutiveFailureThreshold;
+  private final double failureRateThreshold;
+  private final int minRequests;
+  private final long windowMs;
+  private final long openMs;
+  private final int halfOpenTrials;
+  private final Listener listener;
+
+  private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+  private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+  // Current window outcomes packed as failures in the high 32 bits and total in the low 32 bits
+  private final AtomicLong windowCounts = new AtomicLong(0);
+  private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+  private final AtomicLong openedAt = new AtomicLong(0);
+  private final AtomicInteger trialPermits = new AtomicInteger(0);
+  private final AtomicInteger trialSuccesses = new AtomicInteger(0);
+
+  /** Notified on every state change */
+  @FunctionalInterface
+  public interface Listener {
+    void onStateChange(String nodeId, State from, State to);
+  }
+
+  public CircuitBreaker(String nodeId, int consecutiveFailureThreshold, double failureRateThreshold, int minRequests,
+    long windowMs, long openMs, int halfOpenTrials, Listener listener) {
+    this.nodeId = nodeId;
+    this.consecutiveFailureThreshold = consecutiveFailureThreshold;
+    this.failureRateThreshold = failureRateThreshold;
+    this.minRequests = minRequests;
+    this.windowMs = windowMs;
+    this.openMs = openMs;
+    this.halfOpenTrials = halfOpenTrials;
+    this.listener = listener;
+  }
+
+  /**
+   * Whether the node may be offered as a routing candidate. Unlike {@link #allowRequest()} this only reads the state,
+   * so ring lookups for nodes that are never contacted do not use up trial permits.
+   */
+  public boolean isRoutable() {
+    int current = state.get();
+    if (current == State.CLOSED.ordinal()) {
+      return true;
+    }
+    boolean openElapsed = System.currentTimeMillis() - openedAt.get() >= openMs;
+    if (current == State.OPEN.ordinal()) {
+      return openElapsed;
+    }
+    return trialPermits.get() > 0 || openElapsed;
+  }
+
+  /**
+   * Whether a request may be sent to the node now; call it right before sending. In HALF_OPEN each true answer hands
+   * out one of the trial permits.
+   */
+  public boolean allowRequest() {
+    int current = state.get();
+    if (current == State.CLOSED.ordinal()) {
+      return true;
+    }
+
+    long now = System.currentTimeMillis();
+    if (current == State.OPEN.ordinal()) {
+      long opened = openedAt.get();
+      if (now - opened < openMs) {
+        return false;
+      }
+      // One caller wins the right to move the breaker to HALF_OPEN and arm the trial permits
+      if (openedAt.compareAndSet(opened, now)) {
+        trialSuccesses.set(0);
+        trialPermits.set(halfOpenTrials);
+        transition(State.OPEN, State.HALF_OPEN);
+      }
+    }
+    return state.get() == State.HALF_OPEN.ordinal() && takeTrialPermit(now);
+  }
+
+  private boolean takeTrialPermit(long now) {
+    // Permits handed out for requests that never reported back are re-armed after another open period
+    long armed = openedAt.get();
+    if (trialPermits.get() <= 0 && now - armed >= openMs && openedAt.compareAndSet(armed, now)) {
+      trialPermits.set(halfOpenTrials);
+    }
+
+    int permits;
+    do {
+      permits = trialPermits.get();
+      if (permits <= 0) {
+        return false;
+      }
+    } while (!trialPermits.compareAndSet(permits, permits - 1));
+    return true;
+  }
+
+  /** Record a successful upstream call */
+  public void recordSuccess() {
+    consecutiveFailures.set(0);
+    int current = state.get();
+    if (current == State.HALF_OPEN.ordinal()) {
+      if (trialSuccesses.incrementAndGet() >= halfOpenTrials && transition(State.HALF_OPEN, State.CLOSED)) {
+        resetWindow(System.currentTimeMillis());
+      }
+    } else if (current == State.CLOSED.ordinal()) {
+      addToWindow(false);
+    }
+  }
+
+  /** Record a refused connection, timeout or 5xx response */
+  public void recordFailure() {
+    int current = state.get();
+    long now = System.currentTimeMillis();
+
+    if (current == State.HALF_OPEN.ordinal()) {
+      openedAt.set(now);
+      transition(State.HALF_OPEN, State.OPEN);
+      return;
+    }
+    if (current != State.CLOSED.ordinal()) {
+      return;
+    }
+
+    int failures = consecutiveFailures.incrementAndGet();
+    long counts = addToWindow(true);
+    int windowFailures = (int) (counts >>> 32);
+    int windowTotal = (int) counts;
+    boolean rateExceeded = windowTotal >= minRequests
+      && windowFailures * 100.0 / windowTotal >= failureRateThreshold;
+
+    if (failures >= consecutiveFailureThreshold || rateExceeded) {
+      openedAt.set(now);
+      if (transition(State.CLOSED, State.OPEN)) {
+        consecutiveFailures.set(0);
+      }
+    }
+  }
+
+  private long addToWindow(boolean failure) {
+    long now = System.currentTimeMillis();
+    long start = windowStart.get();
+    if (now - start >= windowMs && windowStart.compareAndSet(start, now)) {
+      windowCounts.set(0);
+    }
+    return windowCounts.addAndGet(failure ? (1L << 32) + 1 : 1);
+  }
+
+  private void resetWindow(long now) {
+    windowStart.set(now);
+    windowCounts.set(0);
+    consecutiveFailures.set(0);
+  }
+
+  private boolean transition(State from, State to) {
+    if (state.compareAndSet(from.ordinal(), to.ordinal())) {
+      listener.onStateChange(nodeId, from, to);
+      return true;
+    }
+    return false;
+  }
+
+  public State getState() {
+    return State.values()[state.get()];
+  }
+}
@@ -0,0 +1,16 @@
+package org.example.loadbalancer;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a backend's circuit breaker refuses a request at send time, typically because another request took the
+ * last half-open trial permit; the request was never sent and can move on to the next replica
+ */
+public class CircuitOpenException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public CircuitOpenException(String nodeId) {
+    super("Circuit breaker open for " + nodeId);
+  }
+}
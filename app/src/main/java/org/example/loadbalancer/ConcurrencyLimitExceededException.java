@@ -0,0 +1,13 @@
+package org.example.loadbalancer;
+
+import java.io.IOException;
+
+/** Thrown when a backend is at its learned concurrency limit; the request was never sent and can be spilled */
+public class ConcurrencyLimitExceededException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public ConcurrencyLimitExceededException(String nodeId) {
+    super("Concurrency limit reached on " + nodeId);
+  }
+}
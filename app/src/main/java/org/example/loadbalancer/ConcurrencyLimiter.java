@@ -0,0 +1,129 @@
+package org.example.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive concurrency limit for one backend, learned from round-trip times (gradient style).
+ *
+ * <p>
+ * A smoothed RTT is compared with the minimum RTT of the previous sampling window, which stands in for the latency of
+ * an idle backend. While the two agree the limit grows by a small queue allowance; once requests start to queue the
+ * smoothed RTT rises above the minimum and the limit shrinks in proportion. Timeouts and connection errors cut the
+ * limit multiplicatively. Admission is a single CAS on the in-flight count, so requests over the limit are rejected
+ * immediately instead of queueing.
+ */
+public class ConcurrencyLimiter {
+
+  private static final double RTT_WEIGHT = 0.2;
+  private static final int MIN_RTT_WINDOW = 250;
+  private static final double SMOOTHING = 0.2;
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final AtomicInteger inFlight = new AtomicInteger(0);
+  private final AtomicLong rejected = new AtomicLong(0);
+
+  // Guarded by this; only the sampling path takes the lock
+  private double estimatedLimit;
+  private double smoothedRttNanos;
+  private long minRttNanos = Long.MAX_VALUE;
+  private long windowMinRttNanos = Long.MAX_VALUE;
+  private int windowSamples;
+  private volatile int limit;
+
+  public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.estimatedLimit = initialLimit;
+    this.limit = initialLimit;
+  }
+
+  /** Take an in-flight slot, or return false straight away when the backend is at its limit */
+  public boolean tryAcquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= limit) {
+        rejected.incrementAndGet();
+        return false;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  /** Release a slot after a completed call and learn from its round-trip time */
+  public void onSuccess(long rttNanos) {
+    int inFlightAtCompletion = inFlight.getAndDecrement();
+    update(rttNanos, inFlightAtCompletion);
+  }
+
+  /** Release a slot that was never used, without learning anything */
+  public void release() {
+    inFlight.decrementAndGet();
+  }
+
+  /** Release a slot after a timeout or connection error and back off */
+  public void onFailure() {
+    inFlight.decrementAndGet();
+    synchronized (this) {
+      estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF_RATIO);
+      limit = (int) estimatedLimit;
+    }
+  }
+
+  private synchronized void update(long rttNanos, int inFlightAtCompletion) {
+    smoothedRttNanos = smoothedRttNanos == 0
+      ? rttNanos
+      : smoothedRttNanos + (rttNanos - smoothedRttNanos) * RTT_WEIGHT;
+
+    // The baseline is re-learned every window so it can follow a backend that got slower for good
+    windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+    minRttNanos = Math.min(minRttNanos, rttNanos);
+    if (++windowSamples >= MIN_RTT_WINDOW) {
+      minRttNanos = windowMinRttNanos;
+      windowMinRttNanos = Long.MAX_VALUE;
+      windowSamples = 0;
+    }
+
+    // Do not raise the limit on samples taken while far below it; that only proves the backend was idle
+    if (inFlightAtCompletion < estimatedLimit / 2) {
+      return;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, minRttNanos / smoothedRttNanos));
+    double queueAllowance = Math.sqrt(estimatedLimit);
+    double newLimit = estimatedLimit * gradient + queueAllowance;
+    estimatedLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+    limit = (int) estimatedLimit;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  /** Smoothed round-trip time in milliseconds */
+  public synchronized double getRttMs() {
+    return smoothedRttNanos / 1_000_000.0;
+  }
+
+  /** Minimum round-trip time of the last window in milliseconds, the latency of the backend when it is not queueing */
+  public synchronized double getMinRttMs() {
+    return minRttNanos == Long.MAX_VALUE ? 0 : minRttNanos / 1_000_000.0;
+  }
+
+  /** Throughput the backend sustains at its learned limit (Little's law), or 0 before any sample */
+  public synchronized double getCapacityPerSecond() {
+    return smoothedRttNanos > 0 ? limit * 1_000_000_000.0 / smoothedRttNanos : 0;
+  }
+}
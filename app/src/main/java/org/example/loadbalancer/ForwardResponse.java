@@ -0,0 +1,23 @@
+package org.example.loadbalancer;
+
+import java.util.List;
+import java.util.Map;
+
+/** Response from a forwarded request, immutable so it can be shared between coalesced callers */
+public class ForwardResponse {
+  public final int statusCode;
+  public final byte[] body;
+  public final Map<String, List<String>> headers;
+  public final String servedBy;
+  /** Time spent on the upstream call that produced this response */
+  public final long upstreamNanos;
+
+  public ForwardResponse(int statusCode, byte[] body, Map<String, List<String>> headers, String servedBy,
+    long upstreamNanos) {
+    this.statusCode = statusCode;
+    this.body = body;
+    this.headers = headers;
+    this.servedBy = servedBy;
+    this.upstreamNanos = upstreamNanos;
+  }
+}
@@ -0,0 +1,64 @@
+package org.example.loadbalancer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when to hedge. Recent upstream latencies are sampled into a fixed ring buffer and the hedging delay is
+ * recomputed from the configured percentile every few hundred samples, so the request path only does one array store.
+ */
+public class HedgingPolicy {
+
+  private static final int SAMPLE_SIZE = 1024;
+  private static final int RECOMPUTE_EVERY = 256;
+
+  private final long[] samples = new long[SAMPLE_SIZE];
+  private final AtomicInteger sampleIndex = new AtomicInteger(0);
+  private final double percentile;
+  private final long minDelayMs;
+  private volatile long delayMs = Long.MAX_VALUE;
+  private final AtomicLong hedgesSent = new AtomicLong(0);
+  private final AtomicLong hedgesWon = new AtomicLong(0);
+
+  public HedgingPolicy(double percentile, long minDelayMs) {
+    this.percentile = percentile;
+    this.minDelayMs = minDelayMs;
+  }
+
+  /** Record the latency of a completed upstream call */
+  public void recordLatency(long latencyMs) {
+    int index = sampleIndex.getAndIncrement();
+    // Racing writers may overwrite each other's slot; that only thins the sample
+    samples[index & (SAMPLE_SIZE - 1)] = latencyMs;
+
+    if ((index + 1) % RECOMPUTE_EVERY == 0) {
+      int count = Math.min(index + 1, SAMPLE_SIZE);
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+      delayMs = Math.max(minDelayMs, sorted[Math.max(0, rank)]);
+    }
+  }
+
+  /** Delay before a hedge is sent; no hedging until enough samples have been collected */
+  public long getDelayMs() {
+    return delayMs;
+  }
+
+  public void onHedgeSent() {
+    hedgesSent.incrementAndGet();
+  }
+
+  public void onHedgeWon() {
+    hedgesWon.incrementAndGet();
+  }
+
+  public long getHedgesSent() {
+    return hedgesSent.get();
+  }
+
+  public long getHedgesWon() {
+    return hedgesWon.get();
+  }
+}
@@ -0,0 +1,158 @@
+package org.example.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.common.Node;
+import org.example.metrics.CountMinSketch;
+
+/**
+ * Spreads requests for hot keys over their first few distinct ring successors, so one popular key cannot saturate
+ * the node that owns it. Every other key keeps strict affinity to its owner.
+ *
+ * <p>
+ * Every request is counted in a count-min sketch that {@link #decay()} halves once a second, so a key arriving at r
+ * requests per second settles between r and 2r. A key becomes hot when its estimate reaches twice the threshold, and
+ * enters a small open-addressed set of key hashes claimed by CAS. It stays hot until the decay finds its estimate
+ * below the threshold and clears its slot, so a key near the threshold does not flap. Nothing on the request path
+ * locks.
+ */
+public class HotKeySpreader {
+
+  /** How a hot key's request picks among the key's successors */
+  public enum Mode {
+    /** Rotate through the successors */
+    ROUND_ROBIN,
+    /** Pick two successors at random and take the one with fewer requests in flight */
+    P2C
+  }
+
+  private static final int HOT_SET_SIZE = 256;
+  private static final int PROBES = 8;
+
+  private final Mode mode;
+  private final int successors;
+  private final double thresholdPerSecond;
+  private final long hotEstimate;
+  private final long coolEstimate;
+  private final CountMinSketch sketch = new CountMinSketch(4096);
+  private final AtomicLongArray hotSet = new AtomicLongArray(HOT_SET_SIZE);
+  private final AtomicInteger nextSuccessor = new AtomicInteger();
+  private final LongAdder spreadRequests = new LongAdder();
+
+  public HotKeySpreader(Mode mode, int successors, double thresholdPerSecond) {
+    this.mode = mode;
+    this.successors = Math.max(2, successors);
+    this.thresholdPerSecond = thresholdPerSecond;
+    this.coolEstimate = Math.max(1, (long) thresholdPerSecond);
+    this.hotEstimate = 2 * coolEstimate;
+  }
+
+  /** Count a request for the key and tell whether the key is hot */
+  public boolean record(long keyHash) {
+    long estimate = sketch.increment(keyHash);
+    if (estimate < coolEstimate) {
+      return false;
+    }
+    // Unused slots hold 0, which a real key hash practically never is
+    int start = (int) (keyHash >>> 40);
+    int free = -1;
+    for (int probe = 0; probe < PROBES; probe++) {
+      int slot = (start + probe) & (HOT_SET_SIZE - 1);
+      long hash = hotSet.get(slot);
+      if (hash == keyHash) {
+        return true;
+      }
+      if (hash == 0 && free < 0) {
+        free = slot;
+      }
+    }
+    if (estimate < hotEstimate) {
+      return false;
+    }
+    // A key that finds its neighbourhood full, or loses the race for a slot, is still spread this time
+    if (free >= 0) {
+      hotSet.compareAndSet(free, 0, keyHash);
+    }
+    return true;
+  }
+
+  /**
+   * Reorder a hot key's replicas so the chosen one of its first successors leads, keeping the rest in ring order for
+   * failover, and trim the list to count nodes.
+   */
+  public List<Node> spread(List<Node> replicas, int count) {
+    int candidates = Math.min(successors, replicas.size());
+    if (candidates < 2) {
+      return replicas.size() > count ? replicas.subList(0, count) : replicas;
+    }
+    int chosen;
+    if (mode == Mode.ROUND_ROBIN) {
+      chosen = Math.floorMod(nextSuccessor.getAndIncrement(), candidates);
+    } else {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int first = random.nextInt(candidates);
+      int second = random.nextInt(candidates - 1);
+      if (second >= first) {
+        second++;
+      }
+      chosen = replicas.get(second).getMetrics().getInFlight() < replicas.get(first).getMetrics().getInFlight()
+        ? second
+        : first;
+    }
+    spreadRequests.increment();
+
+    List<Node> ordered = new ArrayList<>(count);
+    ordered.add(replicas.get(chosen));
+    for (int i = 0; i < replicas.size() && ordered.size() < count; i++) {
+      if (i != chosen) {
+        ordered.add(replicas.get(i));
+      }
+    }
+    return ordered;
+  }
+
+  /** Halve the sketch and drop keys that have cooled below the threshold; called once a second */
+  public void decay() {
+    sketch.halve();
+    for (int slot = 0; slot < HOT_SET_SIZE; slot++) {
+      long hash = hotSet.get(slot);
+      if (hash != 0 && sketch.estimate(hash) < coolEstimate) {
+        hotSet.compareAndSet(slot, hash, 0);
+      }
+    }
+  }
+
+  /** Number of successors a hot key is spread over */
+  public int getSuccessors() {
+    return successors;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public double getThresholdPerSecond() {
+    return thresholdPerSecond;
+  }
+
+  /** Keys currently treated as hot */
+  public int getHotKeyCount() {
+    int count = 0;
+    for (int slot = 0; slot < HOT_SET_SIZE; slot++) {
+      if (hotSet.get(slot) != 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Requests routed away from strict affinity because their key was hot */
+  public long getSpreadRequests() {
+    return spreadRequests.sum();
+  }
+}
@@ -0,0 +1,187 @@
+package org.example.loadbalancer;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Bounded executor for the load balancer's HTTP server that measures how long each exchange waited and sheds with
+ * CoDel-style controlled delay.
+ *
+ * <p>
+ * The queue is overloaded when even the shortest wait seen during an interval stayed above the target, i.e. a standing
+ * queue has formed. Normally requests that waited longer than one interval are shed; while overloaded the cut-off drops
+ * to the target, and workers serve the newest request first so that the ones most likely to still be wanted get
+ * through. A shed exchange still runs on a worker, but with {@link #isShed()} set, so the handler can answer 503 at
+ * almost no cost. When the queue is full the exchange runs on the submitting thread, the server's dispatcher, only far
+ * enough for {@link #REJECT_FILTER} to answer a bare 503; no handler runs there, so overload never blocks the thread
+ * that accepts connections.
+ */
+public class IngressQueue implements Executor {
+
+  private static final Logger LOGGER = Logger.getLogger(IngressQueue.class.getName());
+  private static final ThreadLocal<Boolean> SHED = ThreadLocal.withInitial(() -> false);
+  private static final ThreadLocal<Boolean> REJECTED = ThreadLocal.withInitial(() -> false);
+
+  /**
+   * Filter for every context: answers an exchange rejected by a full queue with a bare 503 and Retry-After, without
+   * calling its handler
+   */
+  public static final Filter REJECT_FILTER = new Filter() {
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+      if (!REJECTED.get()) {
+        chain.doFilter(exchange);
+        return;
+      }
+      exchange.getResponseHeaders().set("Retry-After", "1");
+      exchange.sendResponseHeaders(503, -1);
+      exchange.close();
+    }
+
+    @Override
+    public String description() {
+      return "Rejects exchanges that found the ingress queue full";
+    }
+  };
+
+  private final LinkedBlockingDeque<QueuedTask> queue;
+  private final Thread[] workers;
+  private final long targetNanos;
+  private final long intervalNanos;
+  private volatile boolean running = true;
+  private volatile boolean overloaded = false;
+  private volatile long lastMinSojournNanos;
+  private final LongAdder rejected = new LongAdder();
+
+  private final AtomicLong intervalEnd;
+  private final AtomicLong intervalMinSojourn = new AtomicLong(Long.MAX_VALUE);
+
+  private record QueuedTask(Runnable task, long enqueuedNanos) {
+  }
+
+  public IngressQueue(int workerCount, int capacity, long targetMs, long intervalMs) {
+    this.queue = new LinkedBlockingDeque<>(capacity);
+    this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMs);
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    this.intervalEnd = new AtomicLong(System.nanoTime() + intervalNanos);
+    this.workers = new Thread[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new Thread(this::workerLoop, "ingress-" + i);
+      workers[i].start();
+    }
+  }
+
+  /** Whether the exchange running on this thread should be answered with 503 instead of being proxied */
+  public static boolean isShed() {
+    return SHED.get();
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (!queue.offerLast(new QueuedTask(task, System.nanoTime()))) {
+      rejected.increment();
+      REJECTED.set(true);
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Rejecting an exchange failed: {0}", e.getMessage());
+      } finally {
+        REJECTED.set(false);
+      }
+    }
+  }
+
+  private void workerLoop() {
+    while (running) {
+      try {
+        QueuedTask next = overloaded ? queue.pollLast(100, TimeUnit.MILLISECONDS)
+          : queue.pollFirst(100, TimeUnit.MILLISECONDS);
+        if (next == null) {
+          continue;
+        }
+        long now = System.nanoTime();
+        long sojourn = now - next.enqueuedNanos();
+        boolean overloadedNow = onDequeue(sojourn, now);
+        run(next.task(), sojourn > (overloadedNow ? targetNanos : intervalNanos));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Track the minimum wait of the current interval and re-evaluate the overload state when it ends. Workers only write
+   * the minimum when they lower it, and the one worker that wins the CAS on the interval end closes the interval, so
+   * the common path takes no lock.
+   */
+  private boolean onDequeue(long sojourn, long now) {
+    long min = intervalMinSojourn.get();
+    while (sojourn < min && !intervalMinSojourn.compareAndSet(min, sojourn)) {
+      min = intervalMinSojourn.get();
+    }
+
+    long end = intervalEnd.get();
+    if (now - end >= 0 && intervalEnd.compareAndSet(end, now + intervalNanos)) {
+      closeInterval(intervalMinSojourn.getAndSet(Long.MAX_VALUE));
+    }
+    return overloaded;
+  }
+
+  private void closeInterval(long minSojourn) {
+    boolean standingQueue = minSojourn > targetNanos;
+    if (standingQueue != overloaded) {
+      LOGGER.log(standingQueue ? Level.WARNING : Level.INFO, "Ingress queue {0}, minimum wait {1}ms",
+        new Object[] { standingQueue ? "overloaded, shedding" : "recovered",
+            TimeUnit.NANOSECONDS.toMillis(minSojourn) });
+    }
+    overloaded = standingQueue;
+    lastMinSojournNanos = minSojourn;
+  }
+
+  private void run(Runnable task, boolean shedTask) {
+    SHED.set(shedTask);
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Ingress task failed: {0}", e.getMessage());
+    } finally {
+      SHED.set(false);
+    }
+  }
+
+  public void shutdown() {
+    running = false;
+    for (Thread worker : workers) {
+      worker.interrupt();
+    }
+  }
+
+  /** Exchanges answered 503 because the queue was full */
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  public boolean isOverloaded() {
+    return overloaded;
+  }
+
+  /** Minimum queue wait seen during the last completed interval, in milliseconds */
+  public double getMinSojournMs() {
+    long min = lastMinSojournNanos;
+    return min == Long.MAX_VALUE ? 0 : min / 1_000_000.0;
+  }
+}
@@ -5,31 +5,60 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.example.common.Node;
+import org.example.common.NodeMetrics;
 import org.example.config.ServerConfig;
+import org.example.diagnostics.AutoScaleEvent;
+import org.example.diagnostics.HealthTransitionEvent;
+import org.example.loadbalancer.cache.ResponseCache;
 import org.example.loadbalancer.handlers.AddServerHandler;
 import org.example.loadbalancer.handlers.AutoScaleStatusHandler;
+import org.example.loadbalancer.handlers.JfrHandler;
 import org.example.loadbalancer.handlers.LoadBalancerHandler;
+import org.example.loadbalancer.handlers.MetricsHandler;
 import org.example.loadbalancer.handlers.RemoveServerHandler;
+import org.example.loadbalancer.handlers.RingMoveHandler;
+import org.example.loadbalancer.handlers.RingSkewHandler;
 import org.example.loadbalancer.handlers.ScaleDownHandler;
 import org.example.loadbalancer.handlers.ScaleHandler;
 import org.example.loadbalancer.handlers.ScaleUpHandler;
 import org.example.loadbalancer.handlers.StatsHandler;
+import org.example.loadbalancer.handlers.TimelineHandler;
 import org.example.loadbalancer.handlers.ToggleAutoScaleHandler;
+import org.example.loadbalancer.scaling.ForecastScalingPolicy;
+import org.example.loadbalancer.scaling.LoadSample;
+import org.example.loadbalancer.scaling.NodeLoad;
+import org.example.loadbalancer.scaling.ScalingDecision;
+import org.example.loadbalancer.scaling.ScalingPolicy;
+import org.example.loadbalancer.scaling.SloScalingPolicy;
+import org.example.loadbalancer.scaling.ThresholdScalingPolicy;
+import org.example.metrics.HotKeyTracker;
+import org.example.metrics.LatencySnapshot;
+import org.example.metrics.OpenMetricsWriter;
+import org.example.metrics.RateCounter;
+import org.example.metrics.RateSnapshot;
+import org.example.metrics.RequestLatency;
+import org.example.metrics.Timeline;
 import org.example.ring.ConsistentHashRing;
 import org.example.server.ServerManager;
 
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 /** Load Balancer with Consistent Hashing */
@@ -42,29 +71,49 @@ public class LoadBalancer {
   private final ServerManager serverManager;
   private HttpServer httpServer;
   private StatsWebSocketServer wsServer;
+  private TcpProxyServer tcpProxyServer;
+  private IngressQueue ingressQueue;
   private final ScheduledExecutorService scheduler;
   private final ScheduledExecutorService autoScaleScheduler;
-  private final ScheduledExecutorService rpsScheduler;
-  private final AtomicLong requestCount = new AtomicLong(0);
-  private final AtomicLong errorCount = new AtomicLong(0);
+  private final ScheduledExecutorService metricsScheduler;
+  private final RequestCoalescer<ForwardResponse> requestCoalescer;
+  private final ResponseCache responseCache;
+  private final RetryBudget retryBudget;
+  private final HedgingPolicy hedgingPolicy;
+  private final HotKeySpreader hotKeySpreader;
+  private final ExecutorService hedgingExecutor;
+  private final ExecutorService startupExecutor = Executors.newCachedThreadPool();
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder errorCount = new LongAdder();
+  private final LongAdder shedCount = new LongAdder();
+  private final LongAdder nodesAdded = new LongAdder();
+  private final LongAdder nodesRemoved = new LongAdder();
+  private final LongAdder scaleUpEvents = new LongAdder();
+  private final LongAdder scaleDownEvents = new LongAdder();
+  private final RequestLatency latency = new RequestLatency();
+  private volatile StatsSnapshot statsSnapshot;
+  private static final int STATS_INTERVAL_SECONDS = 1;
   private final long startTime;
   private volatile long lastScaleTime = 0;
   private String lastScaleAction = "none";
-  private static final long SCALE_COOLDOWN_MS = 5000; // 5 seconds cooldown between scaling operations
+  private final long scaleCooldownMs;
+  private final ScalingPolicy scalingPolicy;
+  private volatile ScalingDecision lastScalingDecision;
+  // Smoothed time from launching a backend until it is added to the ring, or -1 before the first one
+  private volatile double backendStartupMs = -1;
 
   // Auto-scaling metrics
-  private long lastRequestCount = 0;
-  private long requestsPerInterval = 0;
-
-  // Per-server request tracking
-  private final Map<String, Long> serverRequestCounts = new ConcurrentHashMap<>();
-  private final Map<String, Long> serverStartTimes = new ConcurrentHashMap<>();
-  private final Map<String, Double> serverRequestsPerSecond = new ConcurrentHashMap<>();
-  private final Map<String, Long> serverLastRequestCounts = new ConcurrentHashMap<>();
-
-  // Timeline data (last 60 data points)
-  private final List<TimelineDataPoint> requestTimeline = new ArrayList<>();
-  private final int MAX_TIMELINE_POINTS = 60;
+  private final RateCounter requestRate = new RateCounter();
+  private long lastLimiterRejections = 0;
+
+  // Per-server runtime state; request counts and rates live on each node's NodeMetrics
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private final Map<String, ConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+  private final Map<String, HotKeyTracker> hotKeyTrackers = new ConcurrentHashMap<>();
+  private final Map<String, ScheduledFuture<?>> warmups = new ConcurrentHashMap<>();
+
+  // Request rate and server count history, downsampled for long-term charts
+  private final Timeline timeline;
   private final int MIN_SERVERS;
   private final int MAX_SERVERS;
   private volatile boolean autoScalingEnabled;
@@ -76,11 +125,30 @@ public class LoadBalancer {
   public LoadBalancer(ServerConfig config) {
     this.config = config;
     this.hashRing = new ConsistentHashRing(config.getVirtualNodes());
+    this.hashRing.setHitSampling(config.getVnodeStatsSampleEvery());
     this.serverManager = new ServerManager(config);
     this.scheduler = Executors.newScheduledThreadPool(1);
     this.autoScaleScheduler = Executors.newScheduledThreadPool(1);
-    this.rpsScheduler = Executors.newScheduledThreadPool(1);
+    this.metricsScheduler = Executors.newScheduledThreadPool(1);
     this.startTime = System.currentTimeMillis();
+    this.timeline = new Timeline(config.getTimelineFile());
+    this.requestCoalescer = config.isCoalescingEnabled()
+      ? new RequestCoalescer<>(config.getCoalescingMaxWaitMs())
+      : null;
+    this.responseCache = config.isCacheEnabled()
+      ? new ResponseCache(config.getCacheMaxBytes(), config.getCacheDefaultTtlSeconds(),
+        ResponseCache.RemovalMode.valueOf(config.getCacheOnNodeRemoval().toUpperCase()), hashRing::getOwner)
+      : null;
+    this.retryBudget = new RetryBudget(config.getRetryBudgetRatio(), config.getRetryBudgetMaxTokens());
+    this.hedgingPolicy = config.isHedgingEnabled()
+      ? new HedgingPolicy(config.getHedgingPercentile(), config.getHedgingMinDelayMs())
+      : null;
+    this.hotKeySpreader = config.isHotKeySpreadEnabled()
+      ? new HotKeySpreader(HotKeySpreader.Mode.valueOf(config.getHotKeySpreadMode().toUpperCase().replace('-', '_')),
+        config.getHotKeySpreadSuccessors(), config.getHotKeySpreadThreshold())
+      : null;
+    this.hedgingExecutor = hedgingPolicy != null ? Executors.newCachedThreadPool() : null;
+    this.hashRing.setRoutingFilter(this::isRoutable);
 
     // Load auto-scaling configuration
     this.autoScalingEnabled = config.isAutoScalingEnabled();
@@ -90,6 +158,27 @@ public class LoadBalancer {
     this.SCALE_DOWN_THRESHOLD = config.getAutoScalingScaleDownThreshold();
     this.AUTO_SCALE_CHECK_INTERVAL = config.getAutoScalingCheckInterval();
     this.TARGET_AVG_REQ_PER_SECOND = config.getAutoScalingTargetAvgReqPerSecond();
+    this.scaleCooldownMs = config.getAutoScalingCooldownMs();
+    this.scalingPolicy = createScalingPolicy();
+  }
+
+  /** Build the scaling policy named by autoscaling.policy */
+  private ScalingPolicy createScalingPolicy() {
+    String policy = config.getAutoScalingPolicy();
+    if ("forecast".equalsIgnoreCase(policy)) {
+      int seasonChecks = config.getForecastSeasonSeconds() / Math.max(1, AUTO_SCALE_CHECK_INTERVAL);
+      return new ForecastScalingPolicy(TARGET_AVG_REQ_PER_SECOND, config.getForecastAlpha(), config.getForecastBeta(),
+        config.getForecastGamma(), seasonChecks, config.getForecastHysteresis(), config.getForecastScaleDownChecks());
+    }
+    if ("slo".equalsIgnoreCase(policy)) {
+      return new SloScalingPolicy(config.getSloP99Ms(), config.getSloTargetUtilization(), config.getSloHeadroom(),
+        config.getSloScaleDownChecks());
+    }
+    if (!"threshold".equalsIgnoreCase(policy)) {
+      LOGGER.log(Level.WARNING, "Unknown auto-scaling policy {0}, using threshold", policy);
+    }
+    return new ThresholdScalingPolicy(TARGET_AVG_REQ_PER_SECOND, SCALE_UP_THRESHOLD, SCALE_DOWN_THRESHOLD,
+      MIN_SERVERS, MAX_SERVERS);
   }
 
   /** Initialize and start the load balancer */
@@ -102,9 +191,8 @@ public class LoadBalancer {
     int initialCount = config.getInitialServerCount();
     LOGGER.log(Level.INFO, "Starting {0} initial servers", initialCount);
 
-    for (int i = 0; i < initialCount; i++) {
-      addServerNode();
-    }
+    addServerNodes(initialCount);
+    serverManager.replenishStandby();
 
     // Log the ring stats
     LOGGER.info(hashRing.getStats());
@@ -112,32 +200,53 @@ public class LoadBalancer {
     // Start the load balancer HTTP server
     int lbPort = config.getLoadBalancerPort();
     httpServer = HttpServer.create(new InetSocketAddress(lbPort), 0);
-    httpServer.createContext("/", new LoadBalancerHandler(this));
-    httpServer.createContext("/stats", new StatsHandler(this));
-    httpServer.createContext("/add-server", new AddServerHandler(this));
-    httpServer.createContext("/remove-server", new RemoveServerHandler(this));
-    httpServer.createContext("/scale", new ScaleHandler(this));
-    httpServer.createContext("/scale-up", new ScaleUpHandler(this));
-    httpServer.createContext("/scale-down", new ScaleDownHandler(this));
-    httpServer.createContext("/auto-scale/status", new AutoScaleStatusHandler(this));
-    httpServer.createContext("/auto-scale/toggle", new ToggleAutoScaleHandler(this));
-    httpServer.setExecutor(Executors.newFixedThreadPool(20));
+    addContext("/", new LoadBalancerHandler(this));
+    addContext("/stats", new StatsHandler(this));
+    addContext("/timeline", new TimelineHandler(this));
+    addContext("/metrics", new MetricsHandler(this));
+    addContext("/ring/skew", new RingSkewHandler(this));
+    addContext("/ring/move", new RingMoveHandler(this));
+    addContext("/debug/jfr", new JfrHandler(this));
+    addContext("/add-server", new AddServerHandler(this));
+    addContext("/remove-server", new RemoveServerHandler(this));
+    addContext("/scale", new ScaleHandler(this));
+    addContext("/scale-up", new ScaleUpHandler(this));
+    addContext("/scale-down", new ScaleDownHandler(this));
+    addContext("/auto-scale/status", new AutoScaleStatusHandler(this));
+    addContext("/auto-scale/toggle", new ToggleAutoScaleHandler(this));
+    ingressQueue = new IngressQueue(config.getIngressWorkers(), config.getIngressQueueCapacity(),
+      config.getIngressTargetDelayMs(), config.getIngressIntervalMs());
+    httpServer.setExecutor(ingressQueue);
     httpServer.start();
 
     // Start WebSocket server for stats streaming
     int wsPort = lbPort + 1; // Use next port for WebSocket
-    wsServer = new StatsWebSocketServer(new InetSocketAddress(wsPort), this::generateStatsJson, 1);
+    wsServer = new StatsWebSocketServer(new InetSocketAddress(wsPort), this::getStatsSnapshot,
+      STATS_INTERVAL_SECONDS);
     wsServer.start();
 
+    // Start the optional layer-4 pass-through proxy
+    if (config.isTcpProxyEnabled()) {
+      tcpProxyServer = new TcpProxyServer(this, config.getTcpProxyPort(), config.getTcpHashMode(),
+        config.getTcpHashPrefixBytes(), config.getTcpBufferSize());
+      tcpProxyServer.start();
+    }
+
     LOGGER.info("========================================");
     LOGGER.log(Level.INFO, "Load Balancer started on port {0}", lbPort);
     LOGGER.log(Level.INFO, "Stats: http://localhost:{0}/stats", lbPort);
+    LOGGER.log(Level.INFO, "Metrics: http://localhost:{0}/metrics", lbPort);
     LOGGER.log(Level.INFO, "Stats WebSocket: ws://localhost:{0}", wsPort);
+    LOGGER.log(Level.INFO, "Ring skew: http://localhost:{0}/ring/skew", lbPort);
+    LOGGER.log(Level.INFO, "Flight recording: http://localhost:{0}/debug/jfr?action=start|dump|stop", lbPort);
     LOGGER.log(Level.INFO, "Add server: http://localhost:{0}/add-server", lbPort);
     LOGGER.log(Level.INFO, "Remove server: http://localhost:{0}/remove-server?id=<server-id>", lbPort);
     LOGGER.log(Level.INFO, "Scale up: http://localhost:{0}/scale-up?count=<number>", lbPort);
     LOGGER.log(Level.INFO, "Scale down: http://localhost:{0}/scale-down?count=<number>", lbPort);
     LOGGER.log(Level.INFO, "Scale to: http://localhost:{0}/scale?target=<number>", lbPort);
+    if (tcpProxyServer != null) {
+      LOGGER.log(Level.INFO, "TCP pass-through: localhost:{0}", config.getTcpProxyPort());
+    }
     LOGGER.info("========================================");
 
     // Start health check scheduler
@@ -146,8 +255,17 @@ public class LoadBalancer {
     // Start auto-scaling monitor
     startAutoScaling();
 
-    // Start per-server requests per second calculation
-    startRpsCalculator();
+    // Start publishing latency percentiles
+    startLatencySampler();
+
+    // Start recording the request rate timeline
+    startTimelineRecorder();
+
+    // Start aging the hot key counts, the hot set and the per-position ring counts
+    startCountDecay();
+
+    // Start publishing the stats snapshot shared by /stats and the WebSocket
+    startStatsPublisher();
   }
 
   /** Start periodic health checks */
@@ -160,9 +278,11 @@ public class LoadBalancer {
           if (!healthy && node.isActive()) {
             LOGGER.log(Level.WARNING, "Node {0} is unhealthy", node.getId());
             node.setActive(false);
+            recordHealthTransition(node.getId(), "health-check", "UP", "DOWN");
           } else if (healthy && !node.isActive()) {
             LOGGER.log(Level.INFO, "Node {0} recovered", node.getId());
             node.setActive(true);
+            recordHealthTransition(node.getId(), "health-check", "DOWN", "UP");
           }
         }
       } catch (Exception e) {
@@ -171,134 +291,94 @@ public class LoadBalancer {
     }, interval, interval, TimeUnit.SECONDS);
   }
 
+  /** Register a handler behind the filter that turns away exchanges rejected by a full ingress queue */
+  private void addContext(String path, HttpHandler handler) {
+    httpServer.createContext(path, handler).getFilters().add(IngressQueue.REJECT_FILTER);
+  }
+
   /** Start auto-scaling based on request load */
   private void startAutoScaling() {
     LOGGER.info("Starting auto-scaling scheduler...");
     LOGGER.log(Level.INFO, "  Initial state: {0}", autoScalingEnabled ? "enabled" : "disabled");
+    LOGGER.log(Level.INFO, "  Policy: {0}", scalingPolicy.name());
     LOGGER.log(Level.INFO, "  Target average requests per second per server: {0}", TARGET_AVG_REQ_PER_SECOND);
     LOGGER.log(Level.INFO, "  Scale up threshold: {0} req/s", SCALE_UP_THRESHOLD);
     LOGGER.log(Level.INFO, "  Scale down threshold: {0} req/s", SCALE_DOWN_THRESHOLD);
     LOGGER.log(Level.INFO, "  Check interval: {0}s", AUTO_SCALE_CHECK_INTERVAL);
+    LOGGER.log(Level.INFO, "  Cooldown: {0}ms", scaleCooldownMs);
     LOGGER.log(Level.INFO, "  Server range: {0}-{1}", new Object[] { MIN_SERVERS, MAX_SERVERS });
 
-    // Initialize lastRequestCount to avoid counting all historical requests in first check
-    lastRequestCount = requestCount.get();
-
     autoScaleScheduler.scheduleAtFixedRate(() -> {
       try {
-        // Check if auto-scaling is enabled first to avoid updating counters when disabled
-        if (!autoScalingEnabled) {
-          // When disabled, we still need to track timeline but skip the rest
-          long currentRequests = requestCount.get();
-          double requestsPerSecond = (currentRequests - lastRequestCount) / (double) AUTO_SCALE_CHECK_INTERVAL;
-          int currentServerCount = serverManager.getServerCount();
+        // Requests in the last check interval, read from the sliding window
+        long requestsPerInterval = requestRate.getCount(AUTO_SCALE_CHECK_INTERVAL);
+        double requestsPerSecond = requestRate.getRate(AUTO_SCALE_CHECK_INTERVAL);
+        int currentServerCount = serverManager.getServerCount();
 
-          // Add to timeline for monitoring purposes
-          addToTimeline(requestsPerSecond, currentServerCount);
+        // Requests turned away at a learned concurrency limit mean the backends are saturated, whatever the rate says
+        long limiterRejections = getLimiterRejections();
+        boolean saturated = limiterRejections > lastLimiterRejections;
+        lastLimiterRejections = limiterRejections;
 
-          // Reset lastRequestCount to current to avoid counting requests during disabled period
-          lastRequestCount = currentRequests;
+        // The policy sees every sample, even while scaling is off or cooling down, so forecasts stay current
+        LoadSample sample = new LoadSample(System.currentTimeMillis(), requestsPerSecond, currentServerCount, saturated,
+          AUTO_SCALE_CHECK_INTERVAL, getBackendStartupMs(), latency.getWindow().endToEnd().p99() / 1000.0,
+          sampleNodeLoads());
+        ScalingDecision decision = scalingPolicy.decide(sample);
+        lastScalingDecision = decision;
+
+        if (!autoScalingEnabled) {
           return;
         }
 
-        // Calculate requests per second in this interval
-        long currentRequests = requestCount.get();
-        requestsPerInterval = currentRequests - lastRequestCount;
-        lastRequestCount = currentRequests;
-
-        double requestsPerSecond = requestsPerInterval / (double) AUTO_SCALE_CHECK_INTERVAL;
-        int currentServerCount = serverManager.getServerCount();
-
-        // Calculate average requests per second per server
-        double avgReqPerServer = currentServerCount > 0 ? requestsPerSecond / currentServerCount : 0;
-
-        // Add to timeline
-        addToTimeline(requestsPerSecond, currentServerCount);
-
         LOGGER.log(Level.INFO, "Load: {0} req/s ({1} reqs in {2}s) | {3} servers | {4} req/s per server (target: {5})",
           new Object[] { String.format("%.1f", requestsPerSecond), requestsPerInterval, AUTO_SCALE_CHECK_INTERVAL,
-              currentServerCount, String.format("%.1f", avgReqPerServer),
+              currentServerCount, String.format("%.1f", sample.avgRequestsPerServer()),
               String.format("%.1f", TARGET_AVG_REQ_PER_SECOND) });
 
-        // Prevent scaling when there are no requests (avoid unnecessary scaling)
-        if (requestsPerInterval == 0) {
-          LOGGER.log(Level.INFO, "No requests detected in this interval, skipping auto-scaling");
+        int targetServerCount = Math.max(MIN_SERVERS, Math.min(decision.targetServers(), MAX_SERVERS));
+        if (targetServerCount == currentServerCount) {
           return;
         }
 
         // Check cooldown period - don't scale if we just scaled recently
         long timeSinceLastScale = System.currentTimeMillis() - lastScaleTime;
-        if (lastScaleTime > 0 && timeSinceLastScale < SCALE_COOLDOWN_MS) {
+        if (lastScaleTime > 0 && timeSinceLastScale < scaleCooldownMs) {
           LOGGER.log(Level.INFO, "Cooldown period active ({0}ms remaining), skipping auto-scaling",
-            SCALE_COOLDOWN_MS - timeSinceLastScale);
+            scaleCooldownMs - timeSinceLastScale);
           return;
         }
 
-        // Calculate ideal number of servers based on target average requests per server
-        int idealServerCount = (int) Math.ceil(requestsPerSecond / TARGET_AVG_REQ_PER_SECOND);
-        idealServerCount = Math.max(MIN_SERVERS, Math.min(idealServerCount, MAX_SERVERS));
-
-        // Define the upper and lower bounds using the configured thresholds
-        double scaleUpBound = TARGET_AVG_REQ_PER_SECOND + SCALE_UP_THRESHOLD;
-        double scaleDownBound = TARGET_AVG_REQ_PER_SECOND - SCALE_DOWN_THRESHOLD;
-
-        // Scale up if current average is above the upper bound and we can add servers
-        if (avgReqPerServer > scaleUpBound && currentServerCount < MAX_SERVERS) {
-          // Calculate how many servers to add to get closer to target
-          int serversToAdd = idealServerCount - currentServerCount;
-          serversToAdd = Math.max(1, Math.min(serversToAdd, MAX_SERVERS - currentServerCount));
-          // Limit to max 2 servers at a time to avoid rapid scaling
-          serversToAdd = Math.min(serversToAdd, 2);
-
-          LOGGER.log(Level.INFO,
-            "AUTO-SCALE UP: Current avg {0} req/s per server > {1} req/s (target: {2} + threshold: {3}). Adding {4} server(s)",
-            new Object[] { String.format("%.1f", avgReqPerServer), String.format("%.1f", scaleUpBound),
-                String.format("%.1f", TARGET_AVG_REQ_PER_SECOND), String.format("%.1f", SCALE_UP_THRESHOLD),
-                serversToAdd });
-
-          int serversAdded = 0;
-          for (int i = 0; i < serversToAdd; i++) {
-            // Check if auto-scaling is still enabled before adding each server
-            if (!autoScalingEnabled) {
-              LOGGER.log(Level.INFO, "Auto-scaling disabled during scale-up operation, stopping at {0} servers added",
-                serversAdded);
-              break;
-            }
+        if (targetServerCount > currentServerCount) {
+          int serversToAdd = targetServerCount - currentServerCount;
+          LOGGER.log(Level.INFO, "AUTO-SCALE UP: {0}. Adding {1} server(s)",
+            new Object[] { decision.reason(), serversToAdd });
 
-            // Check if we've reached max servers
-            if (serverManager.getServerCount() >= MAX_SERVERS) {
-              LOGGER.log(Level.INFO, "Reached maximum server limit ({0}), stopping scale-up", MAX_SERVERS);
-              break;
-            }
-
-            addServerNode();
-            serversAdded++;
-          }
+          AutoScaleEvent event = new AutoScaleEvent();
+          event.begin();
+          // Another caller may have added servers since the count was read
+          serversToAdd = Math.min(serversToAdd, MAX_SERVERS - serverManager.getServerCount());
+          int serversAdded = serversToAdd > 0 ? addServerNodes(serversToAdd).size() : 0;
+          commitAutoScale(event, "up", currentServerCount, sample.avgRequestsPerServer(), decision.reason());
 
           if (serversAdded > 0) {
+            scaleUpEvents.increment();
             lastScaleTime = System.currentTimeMillis();
-            lastScaleAction = "Scaled up by " + serversAdded + " (target: "
-              + String.format("%.1f", TARGET_AVG_REQ_PER_SECOND) + " req/s per server)";
+            lastScaleAction = "Scaled up by " + serversAdded + " (" + decision.reason() + ")";
             LOGGER.log(Level.INFO, "Scaled up to {0} servers", serverManager.getServerCount());
           }
-        }
-        // Scale down if current average is below the lower bound and we have more than minimum
-        else if (avgReqPerServer < scaleDownBound && currentServerCount > MIN_SERVERS) {
-          // Calculate how many servers to remove to get closer to target
-          int serversToRemove = currentServerCount - idealServerCount;
-          serversToRemove = Math.max(1, Math.min(serversToRemove, currentServerCount - MIN_SERVERS));
-          // Limit to max 1 server at a time to avoid rapid scaling down
-          serversToRemove = Math.min(serversToRemove, 1);
-
-          LOGGER.log(Level.INFO,
-            "AUTO-SCALE DOWN: Current avg {0} req/s per server < {1} req/s (target: {2} - threshold: {3}). Removing {4} server(s)",
-            new Object[] { String.format("%.1f", avgReqPerServer), String.format("%.1f", scaleDownBound),
-                String.format("%.1f", TARGET_AVG_REQ_PER_SECOND), String.format("%.1f", SCALE_DOWN_THRESHOLD),
-                serversToRemove });
-
-          List<Node> nodes = new ArrayList<>(serverManager.getNodes());
+        } else {
+          int serversToRemove = currentServerCount - targetServerCount;
+          LOGGER.log(Level.INFO, "AUTO-SCALE DOWN: {0}. Removing {1} server(s)",
+            new Object[] { decision.reason(), serversToRemove });
+
+          AutoScaleEvent event = new AutoScaleEvent();
+          event.begin();
+          ScaleDownPlanner.Plan plan = planScaleDown(Math.min(serversToRemove, currentServerCount - MIN_SERVERS));
+          LOGGER.log(Level.INFO, "Removing {0}, shifting {1} req/s", new Object[] { plan.victimIds(),
+            String.format("%.1f", plan.shiftedRequestsPerSecond()) });
           int serversRemoved = 0;
-          for (int i = 0; i < serversToRemove && serverManager.getServerCount() > MIN_SERVERS; i++) {
+          for (String victim : plan.victimIds()) {
             // Check if auto-scaling is still enabled before removing each server
             if (!autoScalingEnabled) {
               LOGGER.log(Level.INFO,
@@ -306,182 +386,360 @@ public class LoadBalancer {
               break;
             }
 
-            // Get fresh node list
-            nodes = new ArrayList<>(serverManager.getNodes());
-            if (nodes.isEmpty() || serverManager.getServerCount() <= MIN_SERVERS) {
+            if (serverManager.getServerCount() <= MIN_SERVERS) {
               LOGGER.log(Level.INFO, "Reached minimum server limit ({0}), stopping scale-down", MIN_SERVERS);
               break;
             }
 
-            Node node = nodes.get(nodes.size() - 1);
-            removeServerNode(node.getId());
+            removeServerNode(victim);
             serversRemoved++;
           }
+          commitAutoScale(event, "down", currentServerCount, sample.avgRequestsPerServer(), decision.reason());
 
           if (serversRemoved > 0) {
+            scaleDownEvents.increment();
             lastScaleTime = System.currentTimeMillis();
-            lastScaleAction = "Scaled down by " + serversRemoved + " (target: "
-              + String.format("%.1f", TARGET_AVG_REQ_PER_SECOND) + " req/s per server)";
+            lastScaleAction = "Scaled down by " + serversRemoved + " (" + decision.reason() + ")";
             LOGGER.log(Level.INFO, "Scaled down to {0} servers", serverManager.getServerCount());
           }
         }
 
-      } catch (IOException e) {
+      } catch (Exception e) {
         LOGGER.log(Level.WARNING, "Auto-scaling error: {0}", e.getMessage());
       }
     }, AUTO_SCALE_CHECK_INTERVAL, AUTO_SCALE_CHECK_INTERVAL, TimeUnit.SECONDS);
   }
 
-  /** Start calculating requests per second for each server */
-  private void startRpsCalculator() {
-    rpsScheduler.scheduleAtFixedRate(() -> {
-      for (String serverId : serverRequestCounts.keySet()) {
-        long currentCount = serverRequestCounts.getOrDefault(serverId, 0L);
-        long lastCount = serverLastRequestCounts.getOrDefault(serverId, 0L);
-        double rps = (currentCount - lastCount) / 1.0; // Per second
-        serverRequestsPerSecond.put(serverId, rps);
-        serverLastRequestCounts.put(serverId, currentCount);
+  private void commitAutoScale(AutoScaleEvent event, String direction, int serversBefore, double avgReqPerServer,
+    String reason) {
+    if (event.shouldCommit()) {
+      event.direction = direction;
+      event.serversBefore = serversBefore;
+      event.serversAfter = serverManager.getServerCount();
+      event.avgRequestsPerServer = avgReqPerServer;
+      event.reason = reason;
+      event.commit();
+    }
+  }
+
+  /**
+   * Load of every serving node for the scaling policy. A node's capacity is its learned concurrency limit when
+   * limiting is on, else the configured per-node capacity.
+   */
+  private List<NodeLoad> sampleNodeLoads() {
+    List<NodeLoad> loads = new ArrayList<>();
+    for (Node node : serverManager.getServingNodes()) {
+      NodeMetrics metrics = node.getMetrics();
+      LatencySnapshot upstream = metrics.getLatency().getWindow().upstream();
+      ConcurrencyLimiter limiter = concurrencyLimiters.get(node.getId());
+      int capacity = limiter != null ? limiter.getLimit() : config.getSloNodeCapacity();
+      loads.add(new NodeLoad(node.getId(), metrics.getRequestRate().getRate(AUTO_SCALE_CHECK_INTERVAL),
+        upstream.p50() / 1000.0, upstream.p99() / 1000.0, metrics.getInFlight(), capacity));
+    }
+    return loads;
+  }
+
+  /** Close a latency window for the load balancer and every node at a fixed period */
+  private void startLatencySampler() {
+    int window = config.getLatencyWindowSeconds();
+    metricsScheduler.scheduleAtFixedRate(() -> {
+      latency.sample();
+      for (Node node : serverManager.getNodes()) {
+        node.getMetrics().getLatency().sample();
       }
+    }, window, window, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Halve every node's hot key counts and the ring's per-position counts at fixed periods so they follow recent
+   * traffic, and age the spreader's hot set once a second
+   */
+  private void startCountDecay() {
+    if (config.isHotKeysEnabled()) {
+      int period = Math.max(1, config.getHotKeysDecaySeconds());
+      metricsScheduler.scheduleAtFixedRate(() -> {
+        for (HotKeyTracker tracker : hotKeyTrackers.values()) {
+          tracker.decay();
+        }
+      }, period, period, TimeUnit.SECONDS);
+    }
+    if (hotKeySpreader != null) {
+      metricsScheduler.scheduleAtFixedRate(hotKeySpreader::decay, 1, 1, TimeUnit.SECONDS);
+    }
+    if (hashRing.getHitSampleEvery() > 0) {
+      int period = Math.max(1, config.getVnodeStatsDecaySeconds());
+      metricsScheduler.scheduleAtFixedRate(hashRing::decayHits, period, period, TimeUnit.SECONDS);
+    }
+  }
+
+  /** Record each completed second's request rate and server count into the timeline */
+  private void startTimelineRecorder() {
+    metricsScheduler.scheduleAtFixedRate(() -> {
+      long lastSecond = System.currentTimeMillis() / 1000 - 1;
+      timeline.record(lastSecond, requestRate.getRate(1), serverManager.getServerCount());
     }, 1, 1, TimeUnit.SECONDS);
   }
 
-  /** Add data point to timeline */
-  private synchronized void addToTimeline(double requestsPerSecond, int serverCount) {
-    TimelineDataPoint point = new TimelineDataPoint(System.currentTimeMillis(), requestsPerSecond, serverCount);
+  /** Timeline points between from and to (epoch seconds) at roughly the given step */
+  public Timeline.Series getTimeline(long from, long to, int stepSeconds) {
+    return timeline.query(from, to, stepSeconds);
+  }
+
+  /** A node takes traffic while the health check sees it up and its circuit breaker lets requests through */
+  private boolean isRoutable(Node node) {
+    if (!node.isActive()) {
+      return false;
+    }
+    CircuitBreaker breaker = circuitBreakers.get(node.getId());
+    return breaker == null || breaker.isRoutable();
+  }
 
-    requestTimeline.add(point);
+  private CircuitBreaker createCircuitBreaker(String nodeId) {
+    return new CircuitBreaker(nodeId, config.getCircuitBreakerConsecutiveFailures(),
+      config.getCircuitBreakerFailureRateThreshold(), config.getCircuitBreakerMinRequests(),
+      config.getCircuitBreakerWindowMs(), config.getCircuitBreakerOpenMs(), config.getCircuitBreakerHalfOpenTrials(),
+      (id, from, to) -> {
+        LOGGER.log(to == CircuitBreaker.State.OPEN ? Level.WARNING : Level.INFO, "Circuit breaker for {0}: {1} -> {2}",
+          new Object[] { id, from, to });
+        recordHealthTransition(id, "circuit-breaker", from.name(), to.name());
+      });
+  }
+
+  private static void recordHealthTransition(String nodeId, String source, String from, String to) {
+    HealthTransitionEvent event = new HealthTransitionEvent();
+    if (event.shouldCommit()) {
+      event.node = nodeId;
+      event.source = source;
+      event.from = from;
+      event.to = to;
+      event.commit();
+    }
+  }
 
-    // Keep only last MAX_TIMELINE_POINTS
-    if (requestTimeline.size() > MAX_TIMELINE_POINTS) {
-      requestTimeline.remove(0);
+  /** Total requests rejected at a learned concurrency limit across all current nodes */
+  private long getLimiterRejections() {
+    long total = 0;
+    for (ConcurrencyLimiter limiter : concurrencyLimiters.values()) {
+      total += limiter.getRejected();
     }
+    return total;
   }
 
-  /** Generate stats JSON */
-  public String generateStatsJson() {
-    long uptime = System.currentTimeMillis() - startTime;
-    long uptimeSeconds = uptime / 1000;
-    long totalRequests = requestCount.get();
-    long totalErrors = errorCount.get();
+  /** Latest stats, capturing them on demand if the first tick has not run yet */
+  public StatsSnapshot getStatsSnapshot() {
+    StatsSnapshot snapshot = statsSnapshot;
+    return snapshot != null ? snapshot : captureStats();
+  }
+
+  /** Capture and encode the stats once per tick, so readers only ever copy the published bytes */
+  private void startStatsPublisher() {
+    metricsScheduler.scheduleAtFixedRate(() -> {
+      try {
+        statsSnapshot = captureStats();
+      } catch (Exception e) {
+        LOGGER.log(Level.WARNING, "Stats capture error: {0}", e.getMessage());
+      }
+    }, 0, STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /** Read every stat once into an immutable snapshot */
+  private StatsSnapshot captureStats() {
+    long now = System.currentTimeMillis();
+    long uptimeSeconds = (now - startTime) / 1000;
+    long totalRequests = requestCount.sum();
+    long totalErrors = errorCount.sum();
     double requestsPerSecond = uptimeSeconds > 0 ? (double) totalRequests / uptimeSeconds : 0;
     double errorRate = totalRequests > 0 ? (double) totalErrors / totalRequests * 100 : 0;
-    int currentServerCount = serverManager.getServerCount();
-    double avgRequestsPerServer = currentServerCount > 0 ? (double) totalRequests / currentServerCount : 0;
-
-    // Calculate current instantaneous load (recent request rate)
-    double currentLoad = requestsPerInterval / (double) AUTO_SCALE_CHECK_INTERVAL;
-
-    StringBuilder stats = new StringBuilder();
-    stats.append("{\n");
-
-    // Load Balancer Info
-    stats.append("  \"loadBalancer\": {\n");
-    stats.append("    \"port\": ").append(config.getLoadBalancerPort()).append(",\n");
-    stats.append("    \"uptime\": ").append(uptimeSeconds).append(",\n");
-    stats.append("    \"uptimeFormatted\": \"").append(formatUptime(uptimeSeconds)).append("\",\n");
-    stats.append("    \"virtualNodesPerServer\": ").append(config.getVirtualNodes()).append("\n");
-    stats.append("  },\n");
-
-    // Performance Metrics
-    stats.append("  \"performance\": {\n");
-    stats.append("    \"totalRequests\": ").append(totalRequests).append(",\n");
-    stats.append("    \"totalErrors\": ").append(totalErrors).append(",\n");
-    stats.append("    \"errorRate\": ").append(String.format("%.2f", errorRate)).append(",\n");
-    stats.append("    \"requestsPerSecond\": ").append(String.format("%.2f", requestsPerSecond)).append(",\n");
-    stats.append("    \"currentLoad\": ").append(String.format("%.2f", currentLoad)).append(",\n");
-    stats.append("    \"currentLoadPercentage\": ")
-      .append(String.format("%.2f", SCALE_UP_THRESHOLD > 0 ? (currentLoad / SCALE_UP_THRESHOLD) * 100 : 0))
-      .append(",\n");
-    stats.append("    \"avgRequestsPerServer\": ").append(String.format("%.2f", avgRequestsPerServer)).append("\n");
-    stats.append("  },\n");
-
-    // Auto-scaling Info
-    stats.append("  \"autoScaling\": {\n");
-    stats.append("    \"enabled\": ").append(autoScalingEnabled).append(",\n");
-    stats.append("    \"minServers\": ").append(MIN_SERVERS).append(",\n");
-    stats.append("    \"maxServers\": ").append(MAX_SERVERS).append(",\n");
-    stats.append("    \"scaleUpThreshold\": ").append(SCALE_UP_THRESHOLD).append(",\n");
-    stats.append("    \"scaleDownThreshold\": ").append(SCALE_DOWN_THRESHOLD).append(",\n");
-    stats.append("    \"checkInterval\": ").append(AUTO_SCALE_CHECK_INTERVAL).append(",\n");
-    stats.append("    \"lastScaleAction\": \"").append(lastScaleAction).append("\",\n");
-    stats.append("    \"lastScaleTime\": ").append(lastScaleTime).append("\n");
-    stats.append("  },\n");
-
-    // Hash Ring Stats
-    stats.append("  \"hashRing\": {\n");
-    stats.append("    \"totalVirtualNodes\": ").append(currentServerCount * config.getVirtualNodes()).append(",\n");
-    stats.append("    \"physicalNodes\": ").append(currentServerCount).append("\n");
-    stats.append("  },\n");
-
-    // Servers Info
-    stats.append("  \"servers\": {\n");
-    stats.append("    \"total\": ").append(currentServerCount).append(",\n");
-    stats.append("    \"active\": ").append(serverManager.getNodes().stream().filter(Node::isActive).count())
-      .append(",\n");
-    stats.append("    \"inactive\": ").append(serverManager.getNodes().stream().filter(n -> !n.isActive()).count())
-      .append(",\n");
-    stats.append("    \"nodes\": [\n");
-
-    // Calculate per-server capacity based on recent load
-    double perServerCapacity = currentServerCount > 0
-      ? (requestsPerInterval / (double) AUTO_SCALE_CHECK_INTERVAL) / currentServerCount
-      : 0;
 
+    // One pass over one copy of the node list, so the counts agree with the nodes listed
     List<Node> nodes = new ArrayList<>(serverManager.getNodes());
-    for (int i = 0; i < nodes.size(); i++) {
-      Node node = nodes.get(i);
-      long nodeUptime = (System.currentTimeMillis() - serverStartTimes.getOrDefault(node.getId(), startTime)) / 1000;
-      long nodeRequests = serverRequestCounts.getOrDefault(node.getId(), 0L);
-      double nodeRequestsPerSecond = serverRequestsPerSecond.getOrDefault(node.getId(), 0.0);
-
-      // Calculate load percentage based on requests per second vs target average.
-      // If a server is handling more than the target req/s, it's above 100%.
-      double nodeLoadPercentage = TARGET_AVG_REQ_PER_SECOND > 0
-        ? (nodeRequestsPerSecond / TARGET_AVG_REQ_PER_SECOND) * 100
-        : 0;
-
-      stats.append("      {\n");
-      stats.append("        \"id\": \"").append(node.getId()).append("\",\n");
-      stats.append("        \"address\": \"").append(node.getAddress()).append("\",\n");
-      stats.append("        \"active\": ").append(node.isActive()).append(",\n");
-      stats.append("        \"uptime\": ").append(nodeUptime).append(",\n");
-      stats.append("        \"uptimeFormatted\": \"").append(formatUptime(nodeUptime)).append("\",\n");
-      stats.append("        \"requestCount\": ").append(nodeRequests).append(",\n");
-      stats.append("        \"requestsPerSecond\": ").append(String.format("%.2f", nodeRequestsPerSecond))
-        .append(",\n");
-      stats.append("        \"loadPercentage\": ").append(String.format("%.2f", nodeLoadPercentage)).append("\n");
-      stats.append("      }");
-      if (i < nodes.size() - 1) {
-        stats.append(",");
+    List<StatsSnapshot.NodeStats> nodeStats = new ArrayList<>(nodes.size());
+    int active = 0;
+    int draining = 0;
+    for (Node node : nodes) {
+      if (node.isActive()) {
+        active++;
+      }
+      if (node.isDraining()) {
+        draining++;
       }
-      stats.append("\n");
+      nodeStats.add(captureNodeStats(node, now));
     }
+    int currentServerCount = nodes.size() - draining;
+    double avgRequestsPerServer = currentServerCount > 0 ? (double) totalRequests / currentServerCount : 0;
+
+    // Calculate current instantaneous load (recent request rate)
+    double currentLoad = requestRate.getRate(AUTO_SCALE_CHECK_INTERVAL);
+
+    StatsSnapshot.LoadBalancerInfo info = new StatsSnapshot.LoadBalancerInfo(config.getLoadBalancerPort(),
+      uptimeSeconds, formatUptime(uptimeSeconds), config.getVirtualNodes());
+    StatsSnapshot.Performance performance = new StatsSnapshot.Performance(totalRequests, totalErrors, errorRate,
+      requestsPerSecond, currentLoad, SCALE_UP_THRESHOLD > 0 ? (currentLoad / SCALE_UP_THRESHOLD) * 100 : 0,
+      requestRate.snapshot(), avgRequestsPerServer, requestCoalescer != null ? requestCoalescer.getCoalescedCount() : 0,
+      config.getLatencyWindowSeconds(), latency.getWindow());
+    ScalingDecision decision = lastScalingDecision;
+    StatsSnapshot.AutoScaling autoScaling = new StatsSnapshot.AutoScaling(autoScalingEnabled, MIN_SERVERS,
+      MAX_SERVERS, SCALE_UP_THRESHOLD, SCALE_DOWN_THRESHOLD, AUTO_SCALE_CHECK_INTERVAL, lastScaleAction, lastScaleTime,
+      getLimiterRejections(), scalingPolicy.name(), decision != null ? decision.reason() : "none",
+      decision != null ? decision.forecastRequestsPerSecond() : Double.NaN, getBackendStartupMs(),
+      serverManager.getStandbyCount());
+
+    StatsSnapshot.Ingress ingress = ingressQueue != null
+      ? new StatsSnapshot.Ingress(ingressQueue.getQueueDepth(), ingressQueue.isOverloaded(),
+        ingressQueue.getMinSojournMs(), getShedCount())
+      : null;
+
+    long hedgeDelay = hedgingPolicy != null ? hedgingPolicy.getDelayMs() : -1;
+    StatsSnapshot.Failover failover = new StatsSnapshot.Failover(retryBudget.getGranted(), retryBudget.getRejected(),
+      hedgingPolicy != null, hedgingPolicy != null ? hedgingPolicy.getHedgesSent() : 0,
+      hedgingPolicy != null ? hedgingPolicy.getHedgesWon() : 0, hedgeDelay == Long.MAX_VALUE ? -1 : hedgeDelay);
+
+    StatsSnapshot.HotKeySpreading hotKeySpreading = hotKeySpreader != null
+      ? new StatsSnapshot.HotKeySpreading(hotKeySpreader.getMode().name(), hotKeySpreader.getSuccessors(),
+        hotKeySpreader.getThresholdPerSecond(), hotKeySpreader.getHotKeyCount(), hotKeySpreader.getSpreadRequests())
+      : null;
+
+    StatsSnapshot.Cache cache = null;
+    if (responseCache != null) {
+      long cacheHits = responseCache.getHits();
+      long cacheMisses = responseCache.getMisses();
+      long cacheLookups = cacheHits + cacheMisses;
+      cache = new StatsSnapshot.Cache(responseCache.getEntryCount(), responseCache.getWeightBytes(),
+        responseCache.getMaxBytes(), cacheHits, cacheMisses,
+        cacheLookups > 0 ? (double) cacheHits / cacheLookups * 100 : 0, responseCache.getRevalidations(),
+        responseCache.getEvictions());
+    }
+
+    StatsSnapshot.Servers servers = new StatsSnapshot.Servers(currentServerCount, active, nodes.size() - active,
+      draining, List.copyOf(nodeStats));
+    return new StatsSnapshot(now, info, performance, autoScaling, ingress, failover, cache, hotKeySpreading,
+      hashRing.getPositionCount(), servers);
+  }
+
+  private StatsSnapshot.NodeStats captureNodeStats(Node node, long now) {
+    NodeMetrics metrics = node.getMetrics();
+    long nodeUptime = (now - metrics.getStartTime()) / 1000;
+    RateSnapshot rates = metrics.getRequestRate().snapshot();
+    double nodeRequestsPerSecond = rates.oneSecond();
 
-    stats.append("    ]\n");
-    stats.append("  }\n");
+    // Calculate load percentage based on requests per second vs target average.
+    // If a server is handling more than the target req/s, it's above 100%.
+    double nodeLoadPercentage = TARGET_AVG_REQ_PER_SECOND > 0
+      ? (nodeRequestsPerSecond / TARGET_AVG_REQ_PER_SECOND) * 100
+      : 0;
 
-    // Timeline data for charts
-    // stats.append(" \"timeline\": [\n");
-    // synchronized (requestTimeline) {
-    // for (int i = 0; i < requestTimeline.size(); i++) {
-    // TimelineDataPoint point = requestTimeline.get(i);
-    // stats.append(" {\n");
-    // stats.append(" \"timestamp\": ").append(point.timestamp).append(",\n");
-    // stats.append(" \"requestsPerSecond\": ").append(String.format("%.2f", point.requestsPerSecond))
-    // .append(",\n");
-    // stats.append(" \"serverCount\": ").append(point.serverCount).append("\n");
-    // stats.append(" }");
-    // if (i < requestTimeline.size() - 1) {
-    // stats.append(",");
-    // }
-    // stats.append("\n");
-    // }
-    // }
-    // stats.append(" ]\n");
+    CircuitBreaker breaker = circuitBreakers.get(node.getId());
+    ConcurrencyLimiter limiter = concurrencyLimiters.get(node.getId());
+    StatsSnapshot.Limiter limiterStats = limiter != null
+      ? new StatsSnapshot.Limiter(limiter.getLimit(), limiter.getRttMs(), limiter.getMinRttMs(),
+        limiter.getCapacityPerSecond(), limiter.getRejected())
+      : null;
+    HotKeyTracker hotKeys = hotKeyTrackers.get(node.getId());
+
+    return new StatsSnapshot.NodeStats(node.getId(), node.getAddress(), node.isActive(), node.isDraining(),
+      metrics.getInFlight(), hashRing.getActiveVirtualNodes(node.getId()) * 100.0 / config.getVirtualNodes(),
+      breaker != null ? breaker.getState().name() : null, metrics.getStartTime(), nodeUptime, formatUptime(nodeUptime),
+      metrics.getRequestCount(), nodeRequestsPerSecond, rates, nodeLoadPercentage, metrics.getLatency().getWindow(),
+      limiterStats, responseCache != null ? responseCache.getPartitionSize(node.getId()) : -1,
+      hotKeys != null ? hotKeys.getTopKeys() : null);
+  }
 
-    stats.append("}\n");
+  /**
+   * Write the OpenMetrics exposition served on /metrics. Numbers and labels go straight into the writer's buffer and
+   * the nodes are read from the server manager's live view rather than a copy, so a scrape allocates only the loop
+   * iterators. A node added or removed during a scrape may appear in some families and not others.
+   */
+  public void writeMetrics(OpenMetricsWriter out) {
+    Collection<Node> nodes = serverManager.getNodesView();
+
+    out.family("lb_requests", "counter", "Requests received by the load balancer");
+    out.sample("lb_requests", "_total").value(requestCount.sum());
+    out.family("lb_errors", "counter", "Requests that failed on every replica");
+    out.sample("lb_errors", "_total").value(errorCount.sum());
+    out.family("lb_shed", "counter", "Requests shed by the ingress queue");
+    out.sample("lb_shed", "_total").value(getShedCount());
+    out.family("lb_requests_per_second", "gauge", "Request rate over the auto-scaling check interval");
+    out.sample("lb_requests_per_second").value(requestRate.getRate(AUTO_SCALE_CHECK_INTERVAL));
+    out.family("lb_request_duration_seconds", "histogram", "Request latency by phase");
+    out.histogram("lb_request_duration_seconds", null, null, "phase", "end_to_end", latency.getEndToEndTotals());
+    out.histogram("lb_request_duration_seconds", null, null, "phase", "upstream", latency.getUpstreamTotals());
+    out.histogram("lb_request_duration_seconds", null, null, "phase", "overhead", latency.getOverheadTotals());
+    if (ingressQueue != null) {
+      out.family("lb_ingress_queue_depth", "gauge", "Requests waiting for an ingress worker");
+      out.sample("lb_ingress_queue_depth").value(ingressQueue.getQueueDepth());
+    }
+    if (hotKeySpreader != null) {
+      out.family("lb_hot_keys", "gauge", "Keys currently spread across their ring successors");
+      out.sample("lb_hot_keys").value(hotKeySpreader.getHotKeyCount());
+      out.family("lb_hot_key_spread", "counter", "Requests for hot keys routed away from strict affinity");
+      out.sample("lb_hot_key_spread", "_total").value(hotKeySpreader.getSpreadRequests());
+    }
 
-    return stats.toString();
+    out.family("lb_ring_nodes", "gauge", "Physical nodes on the hash ring");
+    out.sample("lb_ring_nodes").value(hashRing.getNodeCount());
+    out.family("lb_ring_positions", "gauge", "Virtual node positions on the hash ring");
+    out.sample("lb_ring_positions").value(hashRing.getPositionCount());
+    out.family("lb_servers", "gauge", "Servers not being drained");
+    out.sample("lb_servers").value(serverManager.getServerCount());
+    out.family("lb_standby_servers", "gauge", "Warm servers waiting outside the ring");
+    out.sample("lb_standby_servers").value(serverManager.getStandbyCount());
+    out.family("lb_nodes_added", "counter", "Servers added, manually or by auto-scaling");
+    out.sample("lb_nodes_added", "_total").value(nodesAdded.sum());
+    out.family("lb_nodes_removed", "counter", "Servers removed, manually or by auto-scaling");
+    out.sample("lb_nodes_removed", "_total").value(nodesRemoved.sum());
+    out.family("lb_autoscale_events", "counter", "Auto-scaling decisions that changed the server count");
+    out.sample("lb_autoscale_events", "_total").label("direction", "up").value(scaleUpEvents.sum());
+    out.sample("lb_autoscale_events", "_total").label("direction", "down").value(scaleDownEvents.sum());
+
+    out.family("lb_node_up", "gauge", "Whether the node passes health checks");
+    for (Node node : nodes) {
+      out.sample("lb_node_up").label("node", node.getId()).value(node.isActive());
+    }
+    out.family("lb_node_draining", "gauge", "Whether the node is being drained");
+    for (Node node : nodes) {
+      out.sample("lb_node_draining").label("node", node.getId()).value(node.isDraining());
+    }
+    out.family("lb_node_requests", "counter", "Requests sent to the node");
+    for (Node node : nodes) {
+      out.sample("lb_node_requests", "_total").label("node", node.getId()).value(node.getMetrics().getRequestCount());
+    }
+    out.family("lb_node_requests_per_second", "gauge", "Requests sent to the node in the last second");
+    for (Node node : nodes) {
+      out.sample("lb_node_requests_per_second").label("node", node.getId())
+        .value(node.getMetrics().getRequestsPerSecond());
+    }
+    out.family("lb_node_in_flight", "gauge", "Requests in flight to the node");
+    for (Node node : nodes) {
+      out.sample("lb_node_in_flight").label("node", node.getId()).value(node.getMetrics().getInFlight());
+    }
+    if (!circuitBreakers.isEmpty()) {
+      out.family("lb_node_circuit_open", "gauge", "Whether the node's circuit breaker is not closed");
+      for (Node node : nodes) {
+        CircuitBreaker breaker = circuitBreakers.get(node.getId());
+        if (breaker != null) {
+          out.sample("lb_node_circuit_open").label("node", node.getId())
+            .value(breaker.getState() != CircuitBreaker.State.CLOSED);
+        }
+      }
+    }
+    if (!concurrencyLimiters.isEmpty()) {
+      out.family("lb_node_concurrency_limit", "gauge", "Learned concurrency limit of the node");
+      for (Node node : nodes) {
+        ConcurrencyLimiter limiter = concurrencyLimiters.get(node.getId());
+        if (limiter != null) {
+          out.sample("lb_node_concurrency_limit").label("node", node.getId()).value(limiter.getLimit());
+        }
+      }
+    }
+    out.family("lb_node_request_duration_seconds", "histogram", "Request latency by node and phase");
+    for (Node node : nodes) {
+      RequestLatency nodeLatency = node.getMetrics().getLatency();
+      out.histogram("lb_node_request_duration_seconds", "node", node.getId(), "phase", "end_to_end",
+        nodeLatency.getEndToEndTotals());
+      out.histogram("lb_node_request_duration_seconds", "node", node.getId(), "phase", "upstream",
+        nodeLatency.getUpstreamTotals());
+    }
+    out.eof();
   }
 
   /** Format uptime in human-readable format */
@@ -502,25 +760,156 @@ public class LoadBalancer {
     }
   }
 
-  /** Add a server node to the load balancer and initialize all tracking maps */
+  /** Start a server, wait until it is ready, then initialize all tracking maps and add it to the ring */
   public Node addServerNode() throws IOException {
-    Node node = serverManager.startServer();
-    hashRing.addNode(node);
-    serverStartTimes.put(node.getId(), System.currentTimeMillis());
-    serverRequestCounts.put(node.getId(), 0L);
-    serverLastRequestCounts.put(node.getId(), 0L);
-    serverRequestsPerSecond.put(node.getId(), 0.0);
+    long launchNanos = System.nanoTime();
+    ServerManager.Started started = serverManager.startServer();
+    Node node = started.node();
+    recordBackendStartup((System.nanoTime() - launchNanos) / 1_000_000);
+    if (config.isCircuitBreakerEnabled()) {
+      circuitBreakers.put(node.getId(), createCircuitBreaker(node.getId()));
+    }
+    if (config.isConcurrencyLimitEnabled()) {
+      concurrencyLimiters.put(node.getId(), new ConcurrencyLimiter(config.getConcurrencyLimitInitial(),
+        config.getConcurrencyLimitMin(), config.getConcurrencyLimitMax()));
+    }
+    if (config.isHotKeysEnabled()) {
+      hotKeyTrackers.put(node.getId(), new HotKeyTracker(config.getHotKeysTopK()));
+    }
+    // Once traffic is flowing a new node starts with a small share and ramps up while it warms; the initial servers
+    // all start cold together, and a standby was already warmed, so they join at full weight
+    if (config.isSlowStartEnabled() && httpServer != null && hashRing.getNodeCount() > 0 && !started.fromStandby()) {
+      hashRing.addNode(node, config.getVirtualNodes() * config.getSlowStartInitialPercent() / 100);
+      startWarmup(node.getId());
+    } else {
+      hashRing.addNode(node);
+    }
+    onRingOwnershipChanged();
+    nodesAdded.increment();
     return node;
   }
 
-  /** Remove a server node from the load balancer and clean up all tracking maps */
+  /** Re-home cached responses after a ring change that moved key ownership without removing a node */
+  public void onRingOwnershipChanged() {
+    if (responseCache != null) {
+      responseCache.onOwnershipChanged();
+    }
+  }
+
+  /**
+   * Start count servers in parallel. Each joins the ring as soon as its own /health answers, so the call takes as
+   * long as the slowest backend. Returns the servers that started; failures are logged, and an exception is thrown
+   * only if every startup failed.
+   */
+  public List<Node> addServerNodes(int count) throws IOException {
+    List<Future<Node>> startups = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      startups.add(startupExecutor.submit(this::addServerNode));
+    }
+    List<Node> added = new ArrayList<>(count);
+    IOException failure = null;
+    for (Future<Node> startup : startups) {
+      try {
+        added.add(startup.get());
+      } catch (ExecutionException e) {
+        LOGGER.log(Level.WARNING, "Server failed to start: {0}", e.getCause().getMessage());
+        failure = new IOException(e.getCause().getMessage(), e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while starting servers", e);
+      }
+    }
+    if (added.isEmpty() && failure != null) {
+      throw failure;
+    }
+    return added;
+  }
+
+  /** Fold one measured startup time into the smoothed value the forecasting policy uses as its lead time */
+  private synchronized void recordBackendStartup(long millis) {
+    backendStartupMs = backendStartupMs < 0 ? millis : backendStartupMs * 0.7 + millis * 0.3;
+  }
+
+  /** Smoothed backend startup time in milliseconds, or 0 before any backend has started */
+  public long getBackendStartupMs() {
+    return Math.max(0, Math.round(backendStartupMs));
+  }
+
+  /** Raise the node's active virtual nodes linearly to the full count over the slow-start window */
+  private void startWarmup(String nodeId) {
+    int steps = Math.max(1, config.getSlowStartSteps());
+    // A window shorter than one millisecond per step still ramps, one step per millisecond
+    long stepMs = Math.max(1, config.getSlowStartWindowSeconds() * 1000L / steps);
+    int initial = config.getVirtualNodes() * config.getSlowStartInitialPercent() / 100;
+    int[] step = { 0 };
+
+    ScheduledFuture<?> warmup = scheduler.scheduleAtFixedRate(() -> {
+      if (++step[0] == steps) {
+        LOGGER.log(Level.INFO, "Node {0} finished slow start", nodeId);
+      }
+      int target = initial + (config.getVirtualNodes() - initial) * Math.min(step[0], steps) / steps;
+      if (hashRing.setActiveVirtualNodes(nodeId, target)) {
+        onRingOwnershipChanged();
+      }
+      // The future is registered just after scheduling, so a tick that finds it missing simply retries next time
+      ScheduledFuture<?> self = warmups.get(nodeId);
+      if (step[0] >= steps && self != null) {
+        warmups.remove(nodeId);
+        self.cancel(false);
+      }
+    }, stepMs, stepMs, TimeUnit.MILLISECONDS);
+    warmups.put(nodeId, warmup);
+  }
+
+  /** Choose up to count serving nodes whose removal shifts the least traffic, without removing anything */
+  public ScaleDownPlanner.Plan planScaleDown(int count) {
+    return ScaleDownPlanner.plan(serverManager.getServingNodes(), hashRing.getArcLoads(), responseCache, count);
+  }
+
+  /**
+   * Remove a server node from the load balancer. The node leaves the ring at once and is drained: its process is only
+   * stopped, and its tracking maps cleaned up, once its in-flight requests finish or the drain timeout expires.
+   */
   public void removeServerNode(String nodeId) {
+    Node node = serverManager.getNode(nodeId);
+    if (node == null || node.isDraining()) {
+      return;
+    }
+    node.setDraining(true);
+    nodesRemoved.increment();
+
+    ScheduledFuture<?> warmup = warmups.remove(nodeId);
+    if (warmup != null) {
+      warmup.cancel(false);
+    }
     hashRing.removeNode(nodeId);
-    serverManager.stopServer(nodeId);
-    serverStartTimes.remove(nodeId);
-    serverRequestCounts.remove(nodeId);
-    serverLastRequestCounts.remove(nodeId);
-    serverRequestsPerSecond.remove(nodeId);
+    if (responseCache != null) {
+      responseCache.onNodeRemoved(nodeId);
+    }
+
+    LOGGER.log(Level.INFO, "Draining node {0} ({1} in flight)", new Object[] { nodeId, node.getMetrics().getInFlight() });
+    awaitDrained(node, System.currentTimeMillis() + config.getDrainTimeoutSeconds() * 1000L);
+  }
+
+  /** Poll until the node has no requests in flight or the deadline passes, then stop it */
+  private void awaitDrained(Node node, long deadline) {
+    if (node.getMetrics().getInFlight() > 0 && System.currentTimeMillis() < deadline && !scheduler.isShutdown()) {
+      scheduler.schedule(() -> awaitDrained(node, deadline), 100, TimeUnit.MILLISECONDS);
+      return;
+    }
+    if (node.getMetrics().getInFlight() > 0) {
+      LOGGER.log(Level.WARNING, "Drain timeout for node {0}, stopping with {1} in flight",
+        new Object[] { node.getId(), node.getMetrics().getInFlight() });
+    }
+    finishRemoval(node.getId());
+  }
+
+  /** Stop a drained node and clean up all tracking maps */
+  private void finishRemoval(String nodeId) {
+    serverManager.retireServer(nodeId);
+    circuitBreakers.remove(nodeId);
+    concurrencyLimiters.remove(nodeId);
+    hotKeyTrackers.remove(nodeId);
   }
 
   /** Send error response */
@@ -542,13 +931,26 @@ public class LoadBalancer {
       httpServer.stop(0);
     }
 
+    if (ingressQueue != null) {
+      ingressQueue.shutdown();
+    }
+
     if (wsServer != null) {
       wsServer.shutdown();
     }
 
+    if (tcpProxyServer != null) {
+      tcpProxyServer.shutdown();
+    }
+
     scheduler.shutdown();
     autoScaleScheduler.shutdown();
-    rpsScheduler.shutdown();
+    metricsScheduler.shutdown();
+    timeline.flush();
+    if (hedgingExecutor != null) {
+      hedgingExecutor.shutdownNow();
+    }
+    startupExecutor.shutdownNow();
     serverManager.shutdownAll();
 
     LOGGER.info("Load balancer stopped");
@@ -567,39 +969,82 @@ public class LoadBalancer {
   }
 
   public long getRequestCount() {
-    return requestCount.get();
+    return requestCount.sum();
   }
 
   public void incrementRequestCount() {
-    this.requestCount.incrementAndGet();
+    this.requestCount.increment();
+    this.requestRate.increment();
   }
 
   public long getErrorCount() {
-    return errorCount.get();
+    return errorCount.sum();
   }
 
   public void incrementErrorCount() {
-    this.errorCount.incrementAndGet();
+    this.errorCount.increment();
+  }
+
+  /** Requests shed after waiting too long in the ingress queue, plus those rejected because it was full */
+  public long getShedCount() {
+    IngressQueue queue = ingressQueue;
+    return shedCount.sum() + (queue != null ? queue.getRejected() : 0);
+  }
+
+  public void incrementShedCount() {
+    this.shedCount.increment();
+  }
+
+  /** Latency across all requests handled by the load balancer */
+  public RequestLatency getLatency() {
+    return latency;
   }
 
   public long getStartTime() {
     return startTime;
   }
 
-  public Map<String, Long> getServerRequestCounts() {
-    return serverRequestCounts;
+  /** Get the circuit breaker of a node, or null when breakers are disabled */
+  public CircuitBreaker getCircuitBreaker(String nodeId) {
+    return circuitBreakers.get(nodeId);
+  }
+
+  /** Get the adaptive concurrency limiter of a node, or null when limiting is disabled */
+  public ConcurrencyLimiter getConcurrencyLimiter(String nodeId) {
+    return concurrencyLimiters.get(nodeId);
+  }
+
+  /** Get the hot key spreader, or null when hot keys keep strict affinity */
+  public HotKeySpreader getHotKeySpreader() {
+    return hotKeySpreader;
+  }
+
+  /** Get the hot key tracker of a node, or null when hot key tracking is disabled */
+  public HotKeyTracker getHotKeyTracker(String nodeId) {
+    return hotKeyTrackers.get(nodeId);
+  }
+
+  /** Get the single-flight coalescer for upstream GETs, or null when coalescing is disabled */
+  public RequestCoalescer<ForwardResponse> getRequestCoalescer() {
+    return requestCoalescer;
+  }
+
+  public RetryBudget getRetryBudget() {
+    return retryBudget;
   }
 
-  public Map<String, Long> getServerStartTimes() {
-    return serverStartTimes;
+  /** Get the hedging policy, or null when hedging is disabled */
+  public HedgingPolicy getHedgingPolicy() {
+    return hedgingPolicy;
   }
 
-  public Map<String, Double> getServerRequestsPerSecond() {
-    return serverRequestsPerSecond;
+  public ExecutorService getHedgingExecutor() {
+    return hedgingExecutor;
   }
 
-  public Map<String, Long> getServerLastRequestCounts() {
-    return serverLastRequestCounts;
+  /** Get the response cache, or null when caching is disabled */
+  public ResponseCache getResponseCache() {
+    return responseCache;
   }
 
   public Logger getLogger() {
@@ -618,11 +1063,8 @@ public class LoadBalancer {
 
     this.autoScalingEnabled = enabled;
     if (enabled) {
-      // Reset request counters when enabling auto-scaling to get fresh data
-      // This prevents using stale data from when it was disabled
-      lastRequestCount = requestCount.get();
-      requestsPerInterval = 0;
-      LOGGER.info("Auto-scaling ENABLED - request counters reset for fresh start");
+      // The sliding window always covers the latest interval, so there is nothing stale to reset
+      LOGGER.info("Auto-scaling ENABLED");
     } else {
       LOGGER.info("Auto-scaling DISABLED - scheduler will continue monitoring but won't scale");
     }
@@ -0,0 +1,92 @@
+package org.example.loadbalancer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight request coalescing. Concurrent callers with the same key share one upstream call: the first caller
+ * (the leader) performs it and every caller that arrives while it is in flight receives the same result.
+ */
+public class RequestCoalescer<T> {
+
+  private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+  private final long maxWaitMs;
+  private final AtomicLong coalescedCount = new AtomicLong(0);
+  private final AtomicLong timedOutCount = new AtomicLong(0);
+
+  public RequestCoalescer(long maxWaitMs) {
+    this.maxWaitMs = maxWaitMs;
+  }
+
+  /** Upstream call whose result can be shared between callers */
+  @FunctionalInterface
+  public interface Upstream<T> {
+    T call() throws IOException;
+  }
+
+  /**
+   * Run the upstream call for the key, or join the one already in flight. Followers wait at most maxWaitMs and then
+   * fall back to their own upstream call, so a stuck leader never holds more than one request hostage.
+   */
+  public T execute(String key, Upstream<T> upstream) throws IOException {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    CompletableFuture<T> existing = inFlight.putIfAbsent(key, future);
+
+    if (existing != null) {
+      return await(existing, upstream);
+    }
+
+    try {
+      T result = upstream.call();
+      future.complete(result);
+      return result;
+    } catch (IOException | RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  private T await(CompletableFuture<T> leader, Upstream<T> upstream) throws IOException {
+    try {
+      T result = leader.get(maxWaitMs, TimeUnit.MILLISECONDS);
+      coalescedCount.incrementAndGet();
+      return result;
+    } catch (TimeoutException e) {
+      timedOutCount.incrementAndGet();
+      return upstream.call();
+    } catch (ExecutionException e) {
+      coalescedCount.incrementAndGet();
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException("Coalesced upstream call failed: " + cause.getMessage(), cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for coalesced upstream call", e);
+    }
+  }
+
+  /** Number of callers served from another caller's upstream call */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /** Number of followers that gave up waiting and went upstream themselves */
+  public long getTimedOutCount() {
+    return timedOutCount.get();
+  }
+
+  /** Number of distinct keys currently in flight */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+}
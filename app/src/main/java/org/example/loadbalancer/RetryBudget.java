@@ -0,0 +1,58 @@
+package org.example.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry budget shared by failover and hedging. Every request deposits a fraction of a token and every retry or hedge
+ * withdraws a whole one, so extra upstream traffic stays at a fixed share of real traffic and retries cannot amplify an
+ * outage.
+ */
+public class RetryBudget {
+
+  private static final long TOKEN = 1000;
+
+  private final long depositPerRequest;
+  private final long maxBalance;
+  private final AtomicLong balance;
+  private final AtomicLong granted = new AtomicLong(0);
+  private final AtomicLong rejected = new AtomicLong(0);
+
+  public RetryBudget(double ratio, int maxTokens) {
+    this.depositPerRequest = Math.round(ratio * TOKEN);
+    this.maxBalance = maxTokens * TOKEN;
+    this.balance = new AtomicLong(maxBalance);
+  }
+
+  /** Credit the budget for one incoming request */
+  public void onRequest() {
+    long current;
+    do {
+      current = balance.get();
+      if (current >= maxBalance) {
+        return;
+      }
+    } while (!balance.compareAndSet(current, Math.min(maxBalance, current + depositPerRequest)));
+  }
+
+  /** Take one token for a retry or hedge, returning false when the budget is exhausted */
+  public boolean tryAcquire() {
+    long current;
+    do {
+      current = balance.get();
+      if (current < TOKEN) {
+        rejected.incrementAndGet();
+        return false;
+      }
+    } while (!balance.compareAndSet(current, current - TOKEN));
+    granted.incrementAndGet();
+    return true;
+  }
+
+  public long getGranted() {
+    return granted.get();
+  }
+
+  public long getRejected() {
+    return rejected.get();
+  }
+}
@@ -0,0 +1,195 @@
+package org.example.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.example.common.Node;
+import org.example.loadbalancer.cache.ResponseCache;
+import org.example.metrics.JsonWriter;
+import org.example.ring.ConsistentHashRing;
+
+/**
+ * Picks the servers whose removal disturbs the least traffic, instead of whichever node a map happens to list last.
+ *
+ * <p>
+ * Each serving node is scored by its share of the recent request rate, of the ring's key space, of the requests in
+ * flight and of the response cache's entries, weighted 0.6, 0.2, 0.1 and 0.1. The rate dominates because every
+ * request to a removed node changes owner. Key space stands in for traffic the rate has not seen yet. In-flight
+ * requests lengthen the drain, and cache entries must be re-homed or lost. The lowest scores are removed. The plan
+ * also walks the ring to tell which nodes inherit each removed arc, so a dry run can report the expected shift.
+ */
+public final class ScaleDownPlanner {
+
+  private static final double RATE_WEIGHT = 0.6;
+  private static final double KEYSPACE_WEIGHT = 0.2;
+  private static final double IN_FLIGHT_WEIGHT = 0.1;
+  private static final double CACHE_WEIGHT = 0.1;
+
+  /** One serving node with the live figures it was scored on; lower scores are cheaper to remove */
+  public record Candidate(String id, double requestsPerSecond, double keyspaceShare, int inFlight, int cacheEntries,
+    double score) {
+  }
+
+  /** The chosen victims, every candidate in score order, and where the victims' traffic is expected to go */
+  public record Plan(List<Candidate> victims, List<Candidate> ranking, double totalRequestsPerSecond,
+    Map<String, Double> receivers) {
+
+    /** Request rate that changes owner if the victims are removed */
+    public double shiftedRequestsPerSecond() {
+      double shifted = 0;
+      for (Candidate victim : victims) {
+        shifted += victim.requestsPerSecond();
+      }
+      return shifted;
+    }
+
+    public List<String> victimIds() {
+      List<String> ids = new ArrayList<>(victims.size());
+      for (Candidate victim : victims) {
+        ids.add(victim.id());
+      }
+      return ids;
+    }
+
+    public void writeJson(JsonWriter json) {
+      double shifted = shiftedRequestsPerSecond();
+      json.beginObject();
+      json.name("victims").beginArray();
+      for (String id : victimIds()) {
+        json.value(id);
+      }
+      json.endArray();
+      json.name("totalRequestsPerSecond").value(totalRequestsPerSecond);
+      json.name("shiftedRequestsPerSecond").value(shifted);
+      json.name("shiftedPercentage").value(totalRequestsPerSecond > 0 ? shifted * 100 / totalRequestsPerSecond : 0);
+      json.name("receivers").beginArray();
+      for (Map.Entry<String, Double> receiver : receivers.entrySet()) {
+        json.beginObject();
+        json.name("id").value(receiver.getKey());
+        json.name("addedRequestsPerSecond").value(receiver.getValue());
+        json.endObject();
+      }
+      json.endArray();
+      json.name("ranking").beginArray();
+      for (Candidate candidate : ranking) {
+        json.beginObject();
+        json.name("id").value(candidate.id());
+        json.name("score").value(candidate.score());
+        json.name("requestsPerSecond").value(candidate.requestsPerSecond());
+        json.name("keyspacePercentage").value(candidate.keyspaceShare() * 100);
+        json.name("inFlight").value(candidate.inFlight());
+        json.name("cacheEntries").value(candidate.cacheEntries());
+        json.endObject();
+      }
+      json.endArray();
+      json.endObject();
+    }
+  }
+
+  private ScaleDownPlanner() {
+  }
+
+  /**
+   * Plan the removal of up to count of the serving nodes, always leaving at least one
+   *
+   * @param cache
+   *          the response cache, or null when caching is off
+   */
+  public static Plan plan(List<Node> serving, List<ConsistentHashRing.ArcLoad> arcs, ResponseCache cache, int count) {
+    Map<String, Double> keyspace = new HashMap<>();
+    for (ConsistentHashRing.ArcLoad arc : arcs) {
+      keyspace.merge(arc.owner(), arc.keyspaceShare(), Double::sum);
+    }
+
+    double totalRate = 0;
+    long totalInFlight = 0;
+    long totalCached = 0;
+    double[] rates = new double[serving.size()];
+    int[] inFlight = new int[serving.size()];
+    int[] cached = new int[serving.size()];
+    for (int i = 0; i < serving.size(); i++) {
+      Node node = serving.get(i);
+      rates[i] = node.getMetrics().getRequestRate().getEwmaRate();
+      inFlight[i] = node.getMetrics().getInFlight();
+      cached[i] = cache != null ? cache.getPartitionSize(node.getId()) : 0;
+      totalRate += rates[i];
+      totalInFlight += inFlight[i];
+      totalCached += cached[i];
+    }
+
+    List<Candidate> ranking = new ArrayList<>(serving.size());
+    for (int i = 0; i < serving.size(); i++) {
+      String id = serving.get(i).getId();
+      double share = keyspace.getOrDefault(id, 0.0);
+      double score = RATE_WEIGHT * fraction(rates[i], totalRate) + KEYSPACE_WEIGHT * share
+        + IN_FLIGHT_WEIGHT * fraction(inFlight[i], totalInFlight) + CACHE_WEIGHT * fraction(cached[i], totalCached);
+      ranking.add(new Candidate(id, rates[i], share, inFlight[i], cached[i], score));
+    }
+    ranking.sort(Comparator.comparingDouble(Candidate::score));
+
+    List<Candidate> victims = ranking.subList(0, Math.max(0, Math.min(count, ranking.size() - 1)));
+    return new Plan(List.copyOf(victims), ranking, totalRate, receivers(victims, arcs));
+  }
+
+  /**
+   * Request rate each remaining node inherits: every arc of a victim passes to the next position clockwise that a
+   * surviving node owns. A victim's rate is split over its arcs by their sampled hits, or by key space when the ring
+   * does not sample hits.
+   */
+  private static Map<String, Double> receivers(List<Candidate> victims, List<ConsistentHashRing.ArcLoad> arcs) {
+    Map<String, Double> received = new LinkedHashMap<>();
+    Set<String> removed = new HashSet<>();
+    for (Candidate victim : victims) {
+      removed.add(victim.id());
+    }
+    if (removed.isEmpty() || arcs.isEmpty()) {
+      return received;
+    }
+    Map<String, double[]> victimTotals = new HashMap<>(); // hits, keyspace share
+    for (ConsistentHashRing.ArcLoad arc : arcs) {
+      if (removed.contains(arc.owner())) {
+        double[] totals = victimTotals.computeIfAbsent(arc.owner(), id -> new double[2]);
+        totals[0] += arc.hits();
+        totals[1] += arc.keyspaceShare();
+      }
+    }
+    Map<String, Double> victimRates = new HashMap<>();
+    for (Candidate victim : victims) {
+      victimRates.put(victim.id(), victim.requestsPerSecond());
+    }
+
+    int size = arcs.size();
+    for (int i = 0; i < size; i++) {
+      ConsistentHashRing.ArcLoad arc = arcs.get(i);
+      if (!removed.contains(arc.owner())) {
+        continue;
+      }
+      String heir = null;
+      for (int step = 1; step < size && heir == null; step++) {
+        String owner = arcs.get((i + step) % size).owner();
+        if (!removed.contains(owner)) {
+          heir = owner;
+        }
+      }
+      if (heir == null) {
+        continue;
+      }
+      double[] totals = victimTotals.get(arc.owner());
+      double weight = totals[0] > 0
+        ? arc.hits() / totals[0]
+        : totals[1] > 0 ? arc.keyspaceShare() / totals[1] : 0;
+      received.merge(heir, victimRates.getOrDefault(arc.owner(), 0.0) * weight, Double::sum);
+    }
+    return received;
+  }
+
+  private static double fraction(double part, double total) {
+    return total > 0 ? part / total : 0;
+  }
+}
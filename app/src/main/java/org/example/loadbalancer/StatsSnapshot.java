@@ -0,0 +1,262 @@
+package org.example.loadbalancer;
+
+import java.util.List;
+
+import org.example.metrics.HotKeyTracker;
+import org.example.metrics.JsonWriter;
+import org.example.metrics.LatencyWindow;
+import org.example.metrics.RateSnapshot;
+
+/**
+ * Everything /stats and the stats WebSocket report, captured once per tick and encoded to JSON once. The encoded bytes
+ * are shared by every HTTP request and WebSocket client until the next tick, so more viewers cost no extra work.
+ */
+public final class StatsSnapshot {
+
+  public record LoadBalancerInfo(int port, long uptime, String uptimeFormatted, int virtualNodesPerServer) {
+  }
+
+  public record Performance(long totalRequests, long totalErrors, double errorRate, double requestsPerSecond,
+    double currentLoad, double currentLoadPercentage, RateSnapshot requestRates, double avgRequestsPerServer,
+    long coalescedRequests, int latencyWindowSeconds, LatencyWindow latency) {
+  }
+
+  /** forecastRequestsPerSecond is NaN when the policy does not forecast */
+  public record AutoScaling(boolean enabled, int minServers, int maxServers, double scaleUpThreshold,
+    double scaleDownThreshold, int checkInterval, String lastScaleAction, long lastScaleTime,
+    long concurrencyLimitRejections, String policy, String lastDecision, double forecastRequestsPerSecond,
+    long backendStartupMs, int standbyServers) {
+  }
+
+  public record Ingress(int queueDepth, boolean overloaded, double minQueueDelayMs, long shed) {
+  }
+
+  public record Failover(long retries, long retryBudgetExhausted, boolean hedgingEnabled, long hedgesSent,
+    long hedgesWon, long hedgeDelayMs) {
+  }
+
+  public record Cache(long entries, long sizeBytes, long maxBytes, long hits, long misses, double hitRate,
+    long revalidations, long evictions) {
+  }
+
+  public record HotKeySpreading(String mode, int successors, double thresholdPerSecond, int hotKeys,
+    long spreadRequests) {
+  }
+
+  public record Limiter(int concurrencyLimit, double rttMs, double minRttMs, double capacityPerSecond,
+    long limitRejections) {
+  }
+
+  /** One server; circuitState, limiter, cacheEntries and hotKeys are absent (null or -1) when the feature is off */
+  public record NodeStats(String id, String address, boolean active, boolean draining, int inFlight,
+    double weightPercentage, String circuitState, long startTime, long uptime, String uptimeFormatted,
+    long requestCount, double requestsPerSecond, RateSnapshot requestRates, double loadPercentage,
+    LatencyWindow latency, Limiter limiter, long cacheEntries, List<HotKeyTracker.HotKey> hotKeys) {
+  }
+
+  public record Servers(int total, int active, int inactive, int draining, List<NodeStats> nodes) {
+  }
+
+  public final long capturedAt;
+  public final LoadBalancerInfo loadBalancer;
+  public final Performance performance;
+  public final AutoScaling autoScaling;
+  public final Ingress ingress;
+  public final Failover failover;
+  public final Cache cache;
+  public final HotKeySpreading hotKeySpreading;
+  public final int ringPositions;
+  public final Servers servers;
+  private final byte[] json;
+
+  /** ingress, cache and hotKeySpreading may be null when those features are off */
+  public StatsSnapshot(long capturedAt, LoadBalancerInfo loadBalancer, Performance performance,
+    AutoScaling autoScaling, Ingress ingress, Failover failover, Cache cache, HotKeySpreading hotKeySpreading,
+    int ringPositions, Servers servers) {
+    this.capturedAt = capturedAt;
+    this.loadBalancer = loadBalancer;
+    this.performance = performance;
+    this.autoScaling = autoScaling;
+    this.ingress = ingress;
+    this.failover = failover;
+    this.cache = cache;
+    this.hotKeySpreading = hotKeySpreading;
+    this.ringPositions = ringPositions;
+    this.servers = servers;
+    this.json = encode();
+  }
+
+  /** The encoded JSON document; shared between readers, so it must not be modified */
+  public byte[] getJson() {
+    return json;
+  }
+
+  private byte[] encode() {
+    JsonWriter json = new JsonWriter(2048 + servers.nodes().size() * 1024);
+    json.beginObject();
+    writeSummary(json);
+    json.name("autoScaling");
+    writeAutoScaling(json);
+    json.name("hashRing");
+    writeHashRing(json);
+
+    json.name("servers").beginObject();
+    json.name("total").value(servers.total());
+    json.name("active").value(servers.active());
+    json.name("inactive").value(servers.inactive());
+    json.name("draining").value(servers.draining());
+    json.name("nodes").beginArray();
+    for (NodeStats node : servers.nodes()) {
+      writeNode(json, node, false);
+    }
+    json.endArray();
+    json.endObject();
+
+    json.endObject();
+    return json.toByteArray();
+  }
+
+  /**
+   * Write the load balancer, performance, ingress, failover, cache and hot key spreading sections as members of the
+   * current object
+   */
+  void writeSummary(JsonWriter json) {
+    json.name("loadBalancer").beginObject();
+    json.name("port").value(loadBalancer.port());
+    json.name("uptime").value(loadBalancer.uptime());
+    json.name("uptimeFormatted").value(loadBalancer.uptimeFormatted());
+    json.name("virtualNodesPerServer").value(loadBalancer.virtualNodesPerServer());
+    json.endObject();
+
+    json.name("performance").beginObject();
+    json.name("totalRequests").value(performance.totalRequests());
+    json.name("totalErrors").value(performance.totalErrors());
+    json.name("errorRate").value(performance.errorRate());
+    json.name("requestsPerSecond").value(performance.requestsPerSecond());
+    json.name("currentLoad").value(performance.currentLoad());
+    json.name("currentLoadPercentage").value(performance.currentLoadPercentage());
+    json.name("requestRates");
+    performance.requestRates().writeJson(json);
+    json.name("avgRequestsPerServer").value(performance.avgRequestsPerServer());
+    json.name("coalescedRequests").value(performance.coalescedRequests());
+    json.name("latencyWindowSeconds").value(performance.latencyWindowSeconds());
+    json.name("latency");
+    performance.latency().writeJson(json);
+    json.endObject();
+
+    if (ingress != null) {
+      json.name("ingress").beginObject();
+      json.name("queueDepth").value(ingress.queueDepth());
+      json.name("overloaded").value(ingress.overloaded());
+      json.name("minQueueDelayMs").value(ingress.minQueueDelayMs());
+      json.name("shed").value(ingress.shed());
+      json.endObject();
+    }
+
+    json.name("failover").beginObject();
+    json.name("retries").value(failover.retries());
+    json.name("retryBudgetExhausted").value(failover.retryBudgetExhausted());
+    json.name("hedgingEnabled").value(failover.hedgingEnabled());
+    json.name("hedgesSent").value(failover.hedgesSent());
+    json.name("hedgesWon").value(failover.hedgesWon());
+    json.name("hedgeDelayMs").value(failover.hedgeDelayMs());
+    json.endObject();
+
+    if (cache != null) {
+      json.name("cache").beginObject();
+      json.name("entries").value(cache.entries());
+      json.name("sizeBytes").value(cache.sizeBytes());
+      json.name("maxBytes").value(cache.maxBytes());
+      json.name("hits").value(cache.hits());
+      json.name("misses").value(cache.misses());
+      json.name("hitRate").value(cache.hitRate());
+      json.name("revalidations").value(cache.revalidations());
+      json.name("evictions").value(cache.evictions());
+      json.endObject();
+    }
+
+    if (hotKeySpreading != null) {
+      json.name("hotKeySpreading").beginObject();
+      json.name("mode").value(hotKeySpreading.mode());
+      json.name("successors").value(hotKeySpreading.successors());
+      json.name("thresholdPerSecond").value(hotKeySpreading.thresholdPerSecond());
+      json.name("hotKeys").value(hotKeySpreading.hotKeys());
+      json.name("spreadRequests").value(hotKeySpreading.spreadRequests());
+      json.endObject();
+    }
+  }
+
+  void writeAutoScaling(JsonWriter json) {
+    json.beginObject();
+    json.name("enabled").value(autoScaling.enabled());
+    json.name("minServers").value(autoScaling.minServers());
+    json.name("maxServers").value(autoScaling.maxServers());
+    json.name("scaleUpThreshold").value(autoScaling.scaleUpThreshold());
+    json.name("scaleDownThreshold").value(autoScaling.scaleDownThreshold());
+    json.name("checkInterval").value(autoScaling.checkInterval());
+    json.name("lastScaleAction").value(autoScaling.lastScaleAction());
+    json.name("lastScaleTime").value(autoScaling.lastScaleTime());
+    json.name("concurrencyLimitRejections").value(autoScaling.concurrencyLimitRejections());
+    json.name("policy").value(autoScaling.policy());
+    json.name("lastDecision").value(autoScaling.lastDecision());
+    if (!Double.isNaN(autoScaling.forecastRequestsPerSecond())) {
+      json.name("forecastRequestsPerSecond").value(autoScaling.forecastRequestsPerSecond());
+    }
+    json.name("backendStartupMs").value(autoScaling.backendStartupMs());
+    json.name("standbyServers").value(autoScaling.standbyServers());
+    json.endObject();
+  }
+
+  void writeHashRing(JsonWriter json) {
+    json.beginObject();
+    json.name("totalVirtualNodes").value(ringPositions);
+    json.name("physicalNodes").value(servers.total());
+    json.endObject();
+  }
+
+  /** Streamed nodes carry their start time instead of an uptime, so an idle node encodes the same every tick */
+  static void writeNode(JsonWriter json, NodeStats node, boolean streamed) {
+    json.beginObject();
+    json.name("id").value(node.id());
+    json.name("address").value(node.address());
+    json.name("active").value(node.active());
+    json.name("draining").value(node.draining());
+    json.name("inFlight").value(node.inFlight());
+    json.name("weightPercentage").value(node.weightPercentage());
+    if (node.circuitState() != null) {
+      json.name("circuitState").value(node.circuitState());
+    }
+    if (streamed) {
+      json.name("startTime").value(node.startTime());
+    } else {
+      json.name("uptime").value(node.uptime());
+      json.name("uptimeFormatted").value(node.uptimeFormatted());
+    }
+    json.name("requestCount").value(node.requestCount());
+    json.name("requestsPerSecond").value(node.requestsPerSecond());
+    json.name("requestRates");
+    node.requestRates().writeJson(json);
+    json.name("loadPercentage").value(node.loadPercentage());
+    json.name("latency");
+    node.latency().writeJson(json);
+    Limiter limiter = node.limiter();
+    if (limiter != null) {
+      json.name("concurrencyLimit").value(limiter.concurrencyLimit());
+      json.name("rttMs").value(limiter.rttMs());
+      json.name("minRttMs").value(limiter.minRttMs());
+      json.name("capacityPerSecond").value(limiter.capacityPerSecond());
+      json.name("limitRejections").value(limiter.limitRejections());
+    }
+    if (node.cacheEntries() >= 0) {
+      json.name("cacheEntries").value(node.cacheEntries());
+    }
+    if (node.hotKeys() != null) {
+      json.name("hotKeys").beginArray();
+      for (HotKeyTracker.HotKey hotKey : node.hotKeys()) {
+        json.beginObject().name("key").value(hotKey.key()).name("hits").value(hotKey.hits()).endObject();
+      }
+      json.endArray();
+    }
+    json.endObject();
+  }
+}
@@ -0,0 +1,210 @@
+package org.example.loadbalancer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.example.metrics.JsonWriter;
+
+/**
+ * Turns successive stats snapshots into per-topic frames for subscribed WebSocket clients.
+ *
+ * <p>
+ * Each snapshot is cut into fragments (the summary, the scaling state, the ring and one per node), each encoded once
+ * and stamped with the sequence number at which its bytes last changed. A client that has seen sequence s gets a
+ * delta holding only the fragments changed after s, spliced together from the cached bytes. Clients with the same
+ * topics and the same s share one encoded frame. Clients too far behind, or new ones, get a full snapshot instead.
+ * Not thread-safe; the WebSocket broadcaster drives it from one thread.
+ */
+class StatsStream {
+
+  /** Topics a client can subscribe to, each a bit in a subscription mask */
+  enum Topic {
+    SUMMARY, NODES, RING, SCALING;
+
+    final int bit = 1 << ordinal();
+
+    static final int ALL = (1 << values().length) - 1;
+
+    /** Parse a topic name case-insensitively, returning null if it is unknown */
+    static Topic parse(String name) {
+      try {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+  }
+
+  /** Deltas reach back this many sequence numbers; older clients are resynchronized with a full snapshot */
+  static final int MAX_DELTA_AGE = 60;
+
+  private static final class Fragment {
+    final byte[] json;
+    final long changedSeq;
+
+    Fragment(byte[] json, long changedSeq) {
+      this.json = json;
+      this.changedSeq = changedSeq;
+    }
+  }
+
+  private long seq;
+  private long lastCapturedAt = -1;
+  private Fragment summary;
+  private Fragment scaling;
+  private Fragment ring;
+  private final Map<String, Fragment> nodes = new LinkedHashMap<>();
+  private final Map<String, Long> removedNodes = new LinkedHashMap<>();
+  private final Map<Long, byte[]> frames = new HashMap<>();
+
+  /** Fold in a new snapshot; snapshots already seen are ignored so a slow publisher does not produce empty deltas */
+  void update(StatsSnapshot snapshot) {
+    if (snapshot.capturedAt == lastCapturedAt) {
+      return;
+    }
+    lastCapturedAt = snapshot.capturedAt;
+    seq++;
+    frames.clear();
+
+    JsonWriter json = new JsonWriter(2048);
+    json.beginObject();
+    snapshot.writeSummary(json);
+    json.endObject();
+    summary = refresh(summary, json.toByteArray());
+
+    json = new JsonWriter(512);
+    snapshot.writeAutoScaling(json);
+    scaling = refresh(scaling, json.toByteArray());
+
+    json = new JsonWriter(128);
+    snapshot.writeHashRing(json);
+    ring = refresh(ring, json.toByteArray());
+
+    Map<String, Fragment> previous = new HashMap<>(nodes);
+    nodes.clear();
+    for (StatsSnapshot.NodeStats node : snapshot.servers.nodes()) {
+      json = new JsonWriter(1024);
+      StatsSnapshot.writeNode(json, node, true);
+      nodes.put(node.id(), refresh(previous.remove(node.id()), json.toByteArray()));
+      removedNodes.remove(node.id());
+    }
+    for (String id : previous.keySet()) {
+      removedNodes.put(id, seq);
+    }
+    Iterator<Long> removedAt = removedNodes.values().iterator();
+    while (removedAt.hasNext()) {
+      if (removedAt.next() <= seq - MAX_DELTA_AGE) {
+        removedAt.remove();
+      }
+    }
+  }
+
+  private Fragment refresh(Fragment previous, byte[] json) {
+    if (previous != null && Arrays.equals(previous.json, json)) {
+      return previous;
+    }
+    return new Fragment(json, seq);
+  }
+
+  /** Sequence number of the latest snapshot */
+  long getSeq() {
+    return seq;
+  }
+
+  /**
+   * Frame bringing a client that has seen sinceSeq (0 for none) up to date on its topics, or null if nothing it
+   * subscribed to has changed. Frames are cached per tick, so equal requests return the same bytes.
+   */
+  byte[] frameFor(int topics, long sinceSeq) {
+    boolean full = sinceSeq <= 0 || sinceSeq <= seq - MAX_DELTA_AGE;
+    long since = full ? 0 : sinceSeq;
+    long key = since * (Topic.ALL + 1) + topics;
+    byte[] frame = frames.get(key);
+    if (frame == null && !frames.containsKey(key)) {
+      frame = full ? encodeSnapshot(topics) : encodeDelta(topics, since);
+      frames.put(key, frame);
+    }
+    return frame;
+  }
+
+  private byte[] encodeSnapshot(int topics) {
+    JsonWriter json = new JsonWriter(4096);
+    json.beginObject();
+    json.name("type").value("snapshot");
+    json.name("seq").value(seq);
+    if ((topics & Topic.SUMMARY.bit) != 0) {
+      json.name("summary").rawValue(summary.json);
+    }
+    if ((topics & Topic.SCALING.bit) != 0) {
+      json.name("scaling").rawValue(scaling.json);
+    }
+    if ((topics & Topic.RING.bit) != 0) {
+      json.name("ring").rawValue(ring.json);
+    }
+    if ((topics & Topic.NODES.bit) != 0) {
+      json.name("nodes").beginArray();
+      for (Fragment node : nodes.values()) {
+        json.rawValue(node.json);
+      }
+      json.endArray();
+    }
+    json.endObject();
+    return json.toByteArray();
+  }
+
+  private byte[] encodeDelta(int topics, long since) {
+    JsonWriter json = new JsonWriter(1024);
+    json.beginObject();
+    json.name("type").value("delta");
+    json.name("seq").value(seq);
+    boolean changed = false;
+    if ((topics & Topic.SUMMARY.bit) != 0 && summary.changedSeq > since) {
+      json.name("summary").rawValue(summary.json);
+      changed = true;
+    }
+    if ((topics & Topic.SCALING.bit) != 0 && scaling.changedSeq > since) {
+      json.name("scaling").rawValue(scaling.json);
+      changed = true;
+    }
+    if ((topics & Topic.RING.bit) != 0 && ring.changedSeq > since) {
+      json.name("ring").rawValue(ring.json);
+      changed = true;
+    }
+    if ((topics & Topic.NODES.bit) != 0 && nodesChangedSince(since)) {
+      json.name("nodes").beginObject().name("changed").beginArray();
+      for (Fragment node : nodes.values()) {
+        if (node.changedSeq > since) {
+          json.rawValue(node.json);
+        }
+      }
+      json.endArray().name("removed").beginArray();
+      for (Map.Entry<String, Long> removed : removedNodes.entrySet()) {
+        if (removed.getValue() > since) {
+          json.value(removed.getKey());
+        }
+      }
+      json.endArray().endObject();
+      changed = true;
+    }
+    json.endObject();
+    return changed ? json.toByteArray() : null;
+  }
+
+  private boolean nodesChangedSince(long since) {
+    for (Fragment node : nodes.values()) {
+      if (node.changedSeq > since) {
+        return true;
+      }
+    }
+    for (long removedAt : removedNodes.values()) {
+      if (removedAt > since) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
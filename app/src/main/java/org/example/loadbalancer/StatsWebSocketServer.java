@@ -1,6 +1,7 @@
 package org.example.loadbalancer;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
@@ -10,10 +11,24 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
-
-/** WebSocket server for streaming stats */
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * WebSocket server for streaming stats. The JSON sent each tick is encoded once and its bytes shared by every client,
+ * so it is neither rebuilt nor re-encoded per viewer.
+ *
+ * <p>
+ * A client that sends nothing receives the full /stats document every tick. A client that sends
+ * {@code {"subscribe": ["summary", "nodes", "ring", "scaling"], "intervalSeconds": 2, "binary": false}} receives a
+ * snapshot of those topics and then only deltas at its own rate (see {@link StatsStream}). A client whose previous
+ * frames are still buffered is skipped for the tick; its next delta covers everything it missed.
+ */
 public class StatsWebSocketServer extends WebSocketServer {
 
   private static final Logger LOGGER = Logger.getLogger(StatsWebSocketServer.class.getName());
@@ -22,6 +37,24 @@ public class StatsWebSocketServer extends WebSocketServer {
   private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
   private final StatsProvider statsProvider;
   private final int broadcastInterval;
+  private final StatsStream stream = new StatsStream();
+  private long tick;
+
+  /** Close a client that has not drained its send buffer for this many ticks in a row */
+  private static final int MAX_CONSECUTIVE_DROPS = 30;
+
+  /** Topics, rate and framing a client asked for */
+  private record Subscription(int topics, int intervalTicks, boolean binary) {
+  }
+
+  /** Per-connection stream position, kept as the connection's attachment */
+  private static final class Client {
+    volatile Subscription subscription;
+    Subscription applied;
+    long lastSeq;
+    long lastSentTick;
+    int consecutiveDrops;
+  }
 
   public StatsWebSocketServer(InetSocketAddress address, StatsProvider statsProvider, int broadcastIntervalSeconds) {
     super(address);
@@ -38,13 +71,13 @@ public class StatsWebSocketServer extends WebSocketServer {
 
   @Override
   public void onOpen(WebSocket conn, ClientHandshake handshake) {
+    conn.setAttachment(new Client());
     connections.add(conn);
     LOGGER.log(Level.INFO, "New WebSocket connection: {0}", conn.getRemoteSocketAddress());
 
     // Send initial stats immediately
     try {
-      String stats = statsProvider.getStatsJson();
-      conn.send(stats);
+      conn.sendFrame(frame(statsProvider.getStatsSnapshot().getJson(), false));
     } catch (Exception e) {
       LOGGER.log(Level.WARNING, "Error sending initial stats: {0}", e.getMessage());
     }
@@ -56,10 +89,32 @@ public class StatsWebSocketServer extends WebSocketServer {
     LOGGER.log(Level.INFO, "WebSocket connection closed: {0}", conn.getRemoteSocketAddress());
   }
 
+  /** Replace the client's subscription; the next tick sends it a fresh snapshot of the new topics */
   @Override
   public void onMessage(WebSocket conn, String message) {
-    // Handle incoming messages if needed (e.g., commands to change interval)
-    LOGGER.log(Level.INFO, "Received message: {0}", message);
+    Client client = conn.getAttachment();
+    try {
+      JSONObject request = new JSONObject(message);
+      JSONArray names = request.optJSONArray("subscribe");
+      int topics = 0;
+      for (int i = 0; names != null && i < names.length(); i++) {
+        StatsStream.Topic topic = StatsStream.Topic.parse(names.getString(i));
+        if (topic == null) {
+          conn.send(new JSONObject().put("type", "error").put("message", "Unknown topic: " + names.getString(i))
+            .toString());
+          return;
+        }
+        topics |= topic.bit;
+      }
+      int intervalSeconds = Math.max(1, Math.min(request.optInt("intervalSeconds", broadcastInterval), 60));
+      int intervalTicks = Math.max(1, (intervalSeconds + broadcastInterval - 1) / broadcastInterval);
+      client.subscription = new Subscription(topics != 0 ? topics : StatsStream.Topic.ALL, intervalTicks,
+        request.optBoolean("binary", false));
+      LOGGER.log(Level.INFO, "WebSocket client {0} subscribed: {1}",
+        new Object[] { conn.getRemoteSocketAddress(), message });
+    } catch (Exception e) {
+      conn.send(new JSONObject().put("type", "error").put("message", "Invalid subscription").toString());
+    }
   }
 
   @Override
@@ -78,27 +133,72 @@ public class StatsWebSocketServer extends WebSocketServer {
       }
 
       try {
-        String stats = statsProvider.getStatsJson();
-        broadcastStats(stats);
+        broadcastStats(statsProvider.getStatsSnapshot());
       } catch (Exception e) {
         LOGGER.log(Level.WARNING, "Error broadcasting stats: {0}", e.getMessage());
       }
     }, broadcastInterval, broadcastInterval, TimeUnit.SECONDS);
   }
 
-  /** Broadcast stats to all connected clients */
-  private void broadcastStats(String message) {
+  /** Send each client the full document or its topic delta; equal frames share the same encoded bytes */
+  private void broadcastStats(StatsSnapshot snapshot) {
+    tick++;
+    boolean streamUpdated = false;
     for (WebSocket conn : connections) {
       try {
-        if (conn.isOpen()) {
-          conn.send(message);
+        Client client = conn.getAttachment();
+        Subscription subscription = client.subscription;
+        if (!conn.isOpen() || (subscription != null && tick - client.lastSentTick < subscription.intervalTicks())) {
+          continue;
         }
+        if (conn.hasBufferedData()) {
+          dropFrame(conn, client);
+          continue;
+        }
+        client.consecutiveDrops = 0;
+
+        if (subscription == null) {
+          conn.sendFrame(frame(snapshot.getJson(), false));
+          continue;
+        }
+        if (!streamUpdated) {
+          stream.update(snapshot);
+          streamUpdated = true;
+        }
+        if (subscription != client.applied) {
+          client.applied = subscription;
+          client.lastSeq = 0;
+        }
+        byte[] json = stream.frameFor(subscription.topics(), client.lastSeq);
+        if (json != null) {
+          conn.sendFrame(frame(json, subscription.binary()));
+        }
+        client.lastSeq = stream.getSeq();
+        client.lastSentTick = tick;
       } catch (Exception e) {
         LOGGER.log(Level.WARNING, "Error sending to client: {0}", e.getMessage());
       }
     }
   }
 
+  /** Skip a client that is not keeping up; deltas coalesce what it missed, and a client stuck for too long is closed */
+  private void dropFrame(WebSocket conn, Client client) {
+    if (++client.consecutiveDrops >= MAX_CONSECUTIVE_DROPS) {
+      LOGGER.log(Level.WARNING, "Closing slow WebSocket client {0}", conn.getRemoteSocketAddress());
+      conn.close(1008, "Client too slow");
+    } else {
+      LOGGER.log(Level.FINE, "WebSocket client {0} still has unsent data, skipping this tick",
+        conn.getRemoteSocketAddress());
+    }
+  }
+
+  /** Wrap already encoded UTF-8 JSON in a frame without decoding it back into a String */
+  private static DataFrame frame(byte[] json, boolean binary) {
+    DataFrame frame = binary ? new BinaryFrame() : new TextFrame();
+    frame.setPayload(ByteBuffer.wrap(json));
+    return frame;
+  }
+
   /** Shutdown the WebSocket server */
   public void shutdown() {
     try {
@@ -113,6 +213,6 @@ public class StatsWebSocketServer extends WebSocketServer {
 
   /** Interface for providing stats data */
   public interface StatsProvider {
-    String getStatsJson() throws Exception;
+    StatsSnapshot getStatsSnapshot();
   }
 }
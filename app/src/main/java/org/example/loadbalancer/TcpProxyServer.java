@@ -0,0 +1,282 @@
+package org.example.loadbalancer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.example.common.Node;
+import org.example.util.MurmurHash;
+
+/**
+ * Layer-4 pass-through proxy. Each accepted connection is pinned to a node of the consistent hash ring and bytes are
+ * relayed in both directions without any HTTP parsing.
+ */
+public class TcpProxyServer {
+
+  private static final Logger LOGGER = Logger.getLogger(TcpProxyServer.class.getName());
+  private static final int CONNECT_TIMEOUT_MS = 5000;
+  /** How long first-bytes mode waits for the whole routing prefix before routing on what has arrived */
+  private static final int PREFIX_TIMEOUT_MS = 200;
+  private static final int MAX_POOLED_BUFFERS = 256;
+
+  public static final String HASH_MODE_CLIENT_ADDRESS = "client-address";
+  public static final String HASH_MODE_FIRST_BYTES = "first-bytes";
+
+  private final LoadBalancer loadBalancer;
+  private final int port;
+  private final boolean hashFirstBytes;
+  private final int prefixBytes;
+  private final int bufferSize;
+  private final ExecutorService relayExecutor = Executors.newCachedThreadPool();
+  // Relay buffers are recycled, since allocating direct memory for every connection is slow and freed only by GC
+  private final ConcurrentLinkedQueue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooledBuffers = new AtomicInteger();
+  private ServerSocketChannel serverChannel;
+  private Thread acceptThread;
+  private volatile boolean running;
+
+  public TcpProxyServer(LoadBalancer loadBalancer, int port, String hashMode, int prefixBytes, int bufferSize) {
+    this.loadBalancer = loadBalancer;
+    this.port = port;
+    this.hashFirstBytes = HASH_MODE_FIRST_BYTES.equalsIgnoreCase(hashMode);
+    this.prefixBytes = Math.max(1, prefixBytes);
+    this.bufferSize = Math.max(prefixBytes, bufferSize);
+  }
+
+  /** Bind the listening socket and start accepting connections */
+  public void start() throws IOException {
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().setReuseAddress(true);
+    serverChannel.bind(new InetSocketAddress(port));
+    running = true;
+
+    acceptThread = new Thread(this::acceptLoop, "tcp-proxy-accept");
+    acceptThread.setDaemon(true);
+    acceptThread.start();
+
+    LOGGER.log(Level.INFO, "TCP proxy started on port {0} (hash mode: {1})",
+      new Object[] { port, hashFirstBytes ? HASH_MODE_FIRST_BYTES : HASH_MODE_CLIENT_ADDRESS });
+  }
+
+  private void acceptLoop() {
+    while (running) {
+      try {
+        SocketChannel client = serverChannel.accept();
+        relayExecutor.execute(() -> handleConnection(client));
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        if (running) {
+          LOGGER.log(Level.WARNING, "TCP accept error: {0}", e.getMessage());
+        }
+      }
+    }
+  }
+
+  /** Pick a backend for the connection and relay until both directions are closed */
+  private void handleConnection(SocketChannel client) {
+    SocketChannel backend = null;
+    Node trackedNode = null;
+    // Direct buffers let the kernel copy straight between sockets without a heap round trip
+    ByteBuffer upstream = acquireBuffer();
+    boolean handedOff = false;
+
+    try {
+      loadBalancer.incrementRequestCount();
+      client.socket().setTcpNoDelay(true);
+
+      InetSocketAddress remote = (InetSocketAddress) client.getRemoteAddress();
+      String clientIp = remote.getAddress().getHostAddress();
+
+      Node targetNode;
+      if (hashFirstBytes) {
+        // Route on the first bytes of the stream; they are replayed to the backend below
+        byte[] prefix = readPrefix(client);
+        if (prefix == null) {
+          client.close();
+          return;
+        }
+        upstream.put(prefix).flip();
+        targetNode = loadBalancer.getHashRing().getNodeForHash(MurmurHash.hash64(prefix, 0, prefix.length));
+      } else {
+        upstream.flip();
+        targetNode = loadBalancer.getHashRing().getNode(clientIp);
+      }
+
+      if (targetNode == null) {
+        loadBalancer.incrementErrorCount();
+        LOGGER.log(Level.WARNING, "No available servers for TCP connection from {0}", clientIp);
+        client.close();
+        return;
+      }
+
+      targetNode.getMetrics().recordRequest();
+      targetNode.getMetrics().incrementInFlight();
+      trackedNode = targetNode;
+
+      backend = SocketChannel.open();
+      backend.socket().connect(new InetSocketAddress(targetNode.getHost(), targetNode.getPort()), CONNECT_TIMEOUT_MS);
+      backend.socket().setTcpNoDelay(true);
+
+      // Replay any bytes consumed for routing before switching to the plain relay
+      while (upstream.hasRemaining()) {
+        backend.write(upstream);
+      }
+      upstream.clear();
+
+      // From here the relays own the in-flight slot and the buffers, and release them when the connection closes
+      SocketChannel backendChannel = backend;
+      Node node = targetNode;
+      trackedNode = null;
+      handedOff = true;
+      AtomicInteger openDirections = new AtomicInteger(2);
+      ByteBuffer downstream = acquireBuffer();
+      relayExecutor.execute(() -> relay(backendChannel, client, downstream, openDirections, node));
+      relay(client, backend, upstream, openDirections, node);
+
+    } catch (IOException e) {
+      loadBalancer.incrementErrorCount();
+      LOGGER.log(Level.WARNING, "TCP relay error: {0}", e.getMessage());
+      closeQuietly(client);
+      closeQuietly(backend);
+      if (trackedNode != null) {
+        trackedNode.getMetrics().decrementInFlight();
+      }
+    } finally {
+      if (!handedOff) {
+        releaseBuffer(upstream);
+      }
+    }
+  }
+
+  /**
+   * Read the routing prefix: up to prefixBytes, stopping early only at EOF or after PREFIX_TIMEOUT_MS, so the same
+   * payload hashes the same however TCP segments it. Returns null if the client closed without sending anything.
+   */
+  private byte[] readPrefix(SocketChannel client) throws IOException {
+    byte[] prefix = new byte[prefixBytes];
+    int read = 0;
+    Socket socket = client.socket();
+    // The socket adaptor's stream honours SO_TIMEOUT on a blocking channel, which a plain channel read does not
+    InputStream in = socket.getInputStream();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PREFIX_TIMEOUT_MS);
+    try {
+      while (read < prefixBytes) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMs <= 0) {
+          break;
+        }
+        socket.setSoTimeout((int) remainingMs);
+        int n = in.read(prefix, read, prefixBytes - read);
+        if (n < 0) {
+          break;
+        }
+        read += n;
+      }
+    } catch (SocketTimeoutException e) {
+      // Route on what arrived in time
+    } finally {
+      socket.setSoTimeout(0);
+    }
+    return read == 0 ? null : Arrays.copyOf(prefix, read);
+  }
+
+  private ByteBuffer acquireBuffer() {
+    ByteBuffer buffer = bufferPool.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(bufferSize);
+    }
+    pooledBuffers.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  private void releaseBuffer(ByteBuffer buffer) {
+    if (pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+      bufferPool.offer(buffer);
+    } else {
+      pooledBuffers.decrementAndGet();
+    }
+  }
+
+  /** Copy bytes from one channel to the other until EOF, then half-close the destination and return the buffer */
+  private void relay(SocketChannel from, SocketChannel to, ByteBuffer buffer, AtomicInteger openDirections,
+    Node node) {
+    try {
+      copy(from, to, buffer, openDirections, node);
+    } finally {
+      releaseBuffer(buffer);
+    }
+  }
+
+  private void copy(SocketChannel from, SocketChannel to, ByteBuffer buffer, AtomicInteger openDirections,
+    Node node) {
+    try {
+      while (from.read(buffer) >= 0) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          to.write(buffer);
+        }
+        buffer.clear();
+      }
+      to.shutdownOutput();
+    } catch (IOException e) {
+      // Peer reset or the other direction already tore the connection down
+      if (openDirections.getAndSet(0) > 0) {
+        node.getMetrics().decrementInFlight();
+      }
+      closeQuietly(from);
+      closeQuietly(to);
+      return;
+    }
+
+    // The connection is finished once both directions have seen EOF
+    if (openDirections.decrementAndGet() == 0) {
+      node.getMetrics().decrementInFlight();
+      closeQuietly(from);
+      closeQuietly(to);
+    }
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // Already closed
+    }
+  }
+
+  /** Stop accepting connections and tear down active relays */
+  public void shutdown() {
+    running = false;
+    try {
+      if (serverChannel != null) {
+        serverChannel.close();
+      }
+      relayExecutor.shutdownNow();
+      relayExecutor.awaitTermination(2, TimeUnit.SECONDS);
+      LOGGER.info("TCP proxy stopped");
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Error stopping TCP proxy: {0}", e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
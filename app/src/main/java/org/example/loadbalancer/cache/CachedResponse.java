@@ -0,0 +1,39 @@
+package org.example.loadbalancer.cache;
+
+import java.util.List;
+import java.util.Map;
+
+/** Backend response held by the response cache */
+public class CachedResponse {
+  public final int statusCode;
+  public final byte[] body;
+  public final Map<String, List<String>> headers;
+  public final String etag;
+  private volatile long validatedAt;
+  private volatile long expiresAt;
+
+  CachedResponse(int statusCode, byte[] body, Map<String, List<String>> headers, String etag, long storedAt,
+    long expiresAt) {
+    this.statusCode = statusCode;
+    this.body = body;
+    this.headers = headers;
+    this.etag = etag;
+    this.validatedAt = storedAt;
+    this.expiresAt = expiresAt;
+  }
+
+  public boolean isFresh(long now) {
+    return now < expiresAt;
+  }
+
+  /** Seconds since the response was stored or last revalidated */
+  public long ageSeconds(long now) {
+    return Math.max(0, (now - validatedAt) / 1000);
+  }
+
+  /** Mark the response as confirmed by the backend (304 Not Modified) and fresh until expiresAt */
+  void revalidated(long now, long expiresAt) {
+    this.validatedAt = now;
+    this.expiresAt = expiresAt;
+  }
+}
@@ -0,0 +1,73 @@
+package org.example.loadbalancer.cache;
+
+/**
+ * TinyLFU frequency sketch: a count-min sketch of 4-bit counters packed sixteen to a long. All counters are halved
+ * once the number of recorded accesses reaches the sample size, so the popularity estimate follows recent traffic.
+ * Not thread-safe; callers guard it with their cache partition's lock.
+ */
+class FrequencySketch {
+
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L };
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int expectedEntries) {
+    int size = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+    this.table = new long[size];
+    this.tableMask = size - 1;
+    this.sampleSize = 10 * size;
+  }
+
+  /** Estimated access frequency of the hash, capped at 15 */
+  int frequency(long hash) {
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      long h = rehash(hash, i);
+      int index = (int) (h & tableMask);
+      int offset = (int) ((h >>> 32) & 15) << 2;
+      frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 15L));
+    }
+    return frequency;
+  }
+
+  /** Record one access of the hash */
+  void increment(long hash) {
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      long h = rehash(hash, i);
+      int index = (int) (h & tableMask);
+      int offset = (int) ((h >>> 32) & 15) << 2;
+      long mask = 15L << offset;
+      if ((table[index] & mask) != mask) {
+        table[index] += 1L << offset;
+        added = true;
+      }
+    }
+
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  /** Halve every counter so old popularity decays */
+  private void reset() {
+    int oddCounters = 0;
+    for (int i = 0; i < table.length; i++) {
+      oddCounters += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions = (additions - (oddCounters >>> 2)) >>> 1;
+  }
+
+  private static long rehash(long hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return h;
+  }
+}
@@ -0,0 +1,702 @@
+package org.example.loadbalancer.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.example.common.Node;
+import org.example.util.MurmurHash;
+
+import com.sun.net.httpserver.Headers;
+
+/**
+ * In-LB HTTP response cache shared by all clients. Entries are keyed by the request URI, plus the values of the request
+ * headers the response named in Vary. They are partitioned by the ring owner of their URI, and each partition has its
+ * own lock, so concurrent GETs for different partitions do not serialize. When ownership moves, whether a node joins,
+ * ramps up its virtual nodes, has one moved or leaves, the entries whose URIs changed owner are re-homed to the new
+ * owner's partition, or evicted under {@link RemovalMode#EVICT}.
+ *
+ * <p>
+ * Each partition runs W-TinyLFU: new entries land in a small LRU window, and when the window overflows they only
+ * displace an entry of the main segmented LRU (probation + protected) if the partition's TinyLFU sketch says they are
+ * accessed more often. Segment sizes follow an equal share of the cache per partition, but the memory bound applies
+ * to the cache as a whole: whenever the total weight exceeds it, the largest partition evicts.
+ */
+public class ResponseCache {
+
+  private static final Logger LOGGER = Logger.getLogger(ResponseCache.class.getName());
+
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+  private static final double WINDOW_FRACTION = 0.01;
+  private static final double PROTECTED_FRACTION = 0.8;
+  private static final int AVERAGE_ENTRY_BYTES = 2048;
+  private static final String[] NO_VARY = new String[0];
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  /** What happens to entries whose URI changes owner, including a removed node's whole partition */
+  public enum RemovalMode {
+    /** Re-home entries to the node that now owns their URI */
+    MIGRATE,
+    /** Drop them */
+    EVICT
+  }
+
+  private final long maxWeight;
+  private final long defaultTtlMs;
+  private final RemovalMode removalMode;
+  private final Function<String, Node> owners;
+  private final int sketchSize;
+
+  private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+  // Serializes creating and removing partitions, so a removed node never gets its partition back
+  private final Object partitionLock = new Object();
+  private final AtomicLong weight = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder revalidations = new LongAdder();
+
+  /**
+   * @param owners
+   *          ring owner of a URI; it must ignore routing health so partitions only move when ring membership changes
+   */
+  public ResponseCache(long maxBytes, long defaultTtlSeconds, RemovalMode removalMode, Function<String, Node> owners) {
+    this.maxWeight = maxBytes;
+    this.defaultTtlMs = defaultTtlSeconds * 1000;
+    this.removalMode = removalMode;
+    this.owners = owners;
+    this.sketchSize = (int) Math.min(1 << 22, Math.max(1024, maxBytes / AVERAGE_ENTRY_BYTES));
+  }
+
+  /** Whether a client request may be answered from a shared cache */
+  public static boolean isRequestCacheable(Headers requestHeaders) {
+    if (requestHeaders.containsKey("Authorization") || requestHeaders.containsKey("Range")) {
+      return false;
+    }
+    String cacheControl = requestHeaders.getFirst("Cache-Control");
+    if (cacheControl != null) {
+      String directives = cacheControl.toLowerCase(Locale.ROOT);
+      return !directives.contains("no-cache") && !directives.contains("no-store");
+    }
+    return true;
+  }
+
+  /**
+   * Look up the cached response for the URI and the variant the request headers select, and record the access for
+   * TinyLFU. Stale entries are still returned so the caller can revalidate them with their ETag.
+   */
+  public CachedResponse get(String uri, Headers requestHeaders) {
+    Partition partition = partitionFor(uri);
+    CachedResponse response = partition != null ? partition.get(uri, requestHeaders) : null;
+    if (response != null && response.isFresh(System.currentTimeMillis())) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return response;
+  }
+
+  /** Store a backend response if its status, Vary and Cache-Control allow it */
+  public void put(String uri, Headers requestHeaders, int statusCode, byte[] body, Map<String, List<String>> headers) {
+    if (statusCode != 200 || firstHeader(headers, "Set-Cookie") != null) {
+      return;
+    }
+    String[] vary = varyNames(headers);
+    if (vary == null) {
+      return;
+    }
+
+    long ttlMs = freshnessMs(headers);
+    String etag = firstHeader(headers, "ETag");
+    // A response that must always be revalidated is only worth keeping if it can be revalidated cheaply
+    if (ttlMs < 0 || (ttlMs == 0 && etag == null)) {
+      return;
+    }
+
+    long entryWeight = weigh(body, headers);
+    if (entryWeight > maxWeight) {
+      return;
+    }
+
+    Partition partition = partitionFor(uri);
+    if (partition != null) {
+      long now = System.currentTimeMillis();
+      partition.put(uri, vary, requestHeaders, new CachedResponse(statusCode, body, headers, etag, now, now + ttlMs),
+        entryWeight);
+      enforceLimit();
+    }
+  }
+
+  /** Extend a stale entry after the backend answered 304 Not Modified */
+  public void revalidated(String uri, Headers requestHeaders, CachedResponse cached,
+    Map<String, List<String>> notModifiedHeaders) {
+    // A 304 may omit Cache-Control, in which case the original response's freshness applies again
+    long ttlMs = firstHeader(notModifiedHeaders, "Cache-Control") != null
+      ? freshnessMs(notModifiedHeaders)
+      : freshnessMs(cached.headers);
+    Partition partition = partitionFor(uri);
+    if (partition != null) {
+      partition.revalidated(uri, requestHeaders, cached, ttlMs);
+    }
+  }
+
+  /**
+   * Handle removal of a node from the ring, after the ring has dropped it. Only that node's partition is touched: its
+   * entries are either re-homed to the partitions of their URIs' new owners or evicted.
+   */
+  public void onNodeRemoved(String nodeId) {
+    Partition partition;
+    synchronized (partitionLock) {
+      partition = partitions.remove(nodeId);
+    }
+    if (partition == null) {
+      return;
+    }
+    int total = partition.size();
+    int migrated = rehome(partition.takeEntries(true));
+    LOGGER.log(Level.INFO, "Cache partition of {0}: {1} entries migrated, {2} evicted",
+      new Object[] { nodeId, migrated, total - migrated });
+  }
+
+  /**
+   * Handle a ring change that moved ownership without removing a node: a node joined, stepped up its virtual nodes
+   * during slow start, or had a virtual node moved. Entries whose URI now belongs to another node are re-homed.
+   */
+  public void onOwnershipChanged() {
+    int moved = 0;
+    int migrated = 0;
+    for (Partition partition : partitions.values()) {
+      List<Entry> orphans = partition.takeEntries(false);
+      moved += orphans.size();
+      migrated += rehome(orphans);
+    }
+    if (moved > 0) {
+      LOGGER.log(Level.FINE, "Cache entries after a ring change: {0} migrated, {1} evicted",
+        new Object[] { migrated, moved - migrated });
+    }
+  }
+
+  /** Hand entries taken out of their partition to their URIs' current owners; returns how many were kept */
+  private int rehome(List<Entry> orphans) {
+    int migrated = 0;
+    for (Entry entry : orphans) {
+      Partition target = removalMode == RemovalMode.MIGRATE ? partitionFor(entry.uri) : null;
+      if (target != null && target.adopt(entry)) {
+        migrated++;
+      } else {
+        evictions.increment();
+      }
+    }
+    enforceLimit();
+    return migrated;
+  }
+
+  private Partition partitionFor(String uri) {
+    Node owner = owners.apply(uri);
+    if (owner == null) {
+      return null;
+    }
+    Partition partition = partitions.get(owner.getId());
+    return partition != null ? partition : createPartition(uri);
+  }
+
+  /**
+   * Create the partition of the URI's owner. The owner is resolved again under the lock: a caller that looked it up
+   * before the ring dropped a node then sees the new owner instead of recreating the removed node's partition.
+   */
+  private Partition createPartition(String uri) {
+    synchronized (partitionLock) {
+      Node owner = owners.apply(uri);
+      return owner != null ? partitions.computeIfAbsent(owner.getId(), Partition::new) : null;
+    }
+  }
+
+  /** Each partition's share of the memory bound, which sizes its window and protected segments */
+  private long partitionShare() {
+    return maxWeight / Math.max(1, partitions.size());
+  }
+
+  /** Evict from the largest partition until the whole cache is back within its memory bound */
+  private void enforceLimit() {
+    while (weight.get() > maxWeight) {
+      Partition largest = null;
+      for (Partition partition : partitions.values()) {
+        if (largest == null || partition.partitionWeight > largest.partitionWeight) {
+          largest = partition;
+        }
+      }
+      if (largest == null || !largest.evictOne()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Lower-cased, sorted header names from the response's Vary headers; empty without Vary, null for Vary: * (the
+   * response depends on more than the request headers, so it cannot be stored)
+   */
+  private static String[] varyNames(Map<String, List<String>> headers) {
+    TreeSet<String> names = new TreeSet<>();
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      if (header.getKey() == null || !header.getKey().equalsIgnoreCase("Vary")) {
+        continue;
+      }
+      for (String value : header.getValue()) {
+        for (String name : value.split(",")) {
+          String n = name.trim().toLowerCase(Locale.ROOT);
+          if (n.equals("*")) {
+            return null;
+          }
+          if (!n.isEmpty()) {
+            names.add(n);
+          }
+        }
+      }
+    }
+    return names.isEmpty() ? NO_VARY : names.toArray(new String[0]);
+  }
+
+  /** Key of the variant the request headers select: the URI followed by each varying header's value */
+  private static String variantKey(String uri, String[] vary, Headers requestHeaders) {
+    if (vary.length == 0) {
+      return uri;
+    }
+    StringBuilder key = new StringBuilder(uri);
+    for (String name : vary) {
+      key.append('\n').append(name).append('=');
+      List<String> values = requestHeaders.get(name);
+      if (values != null) {
+        key.append(String.join(",", values));
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Freshness lifetime in milliseconds from Cache-Control. Returns -1 when the response must not be stored and 0 when
+   * it must be revalidated on every use.
+   */
+  private long freshnessMs(Map<String, List<String>> headers) {
+    String cacheControl = firstHeader(headers, "Cache-Control");
+    if (cacheControl == null) {
+      return defaultTtlMs > 0 ? defaultTtlMs : -1;
+    }
+
+    long maxAge = -1;
+    long sharedMaxAge = -1;
+    for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+      String d = directive.trim();
+      if (d.equals("no-store") || d.equals("private")) {
+        return -1;
+      } else if (d.equals("no-cache")) {
+        return 0;
+      } else if (d.startsWith("s-maxage=")) {
+        sharedMaxAge = parseSeconds(d.substring("s-maxage=".length()));
+      } else if (d.startsWith("max-age=")) {
+        maxAge = parseSeconds(d.substring("max-age=".length()));
+      }
+    }
+
+    if (sharedMaxAge >= 0) {
+      return sharedMaxAge * 1000;
+    }
+    if (maxAge >= 0) {
+      return maxAge * 1000;
+    }
+    return defaultTtlMs > 0 ? defaultTtlMs : -1;
+  }
+
+  private static long parseSeconds(String value) {
+    try {
+      return Long.parseLong(value.replace("\"", ""));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** Case-insensitive lookup, since backends do not agree on header name casing */
+  private static String firstHeader(Map<String, List<String>> headers, String name) {
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      if (header.getKey() != null && header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()) {
+        return header.getValue().get(0);
+      }
+    }
+    return null;
+  }
+
+  private static long weigh(byte[] body, Map<String, List<String>> headers) {
+    long weight = ENTRY_OVERHEAD_BYTES + body.length;
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      int nameLength = header.getKey() != null ? header.getKey().length() : 0;
+      for (String value : header.getValue()) {
+        weight += nameLength + value.length();
+      }
+    }
+    return weight;
+  }
+
+  public int getEntryCount() {
+    int count = 0;
+    for (Partition partition : partitions.values()) {
+      count += partition.size();
+    }
+    return count;
+  }
+
+  public long getWeightBytes() {
+    return weight.get();
+  }
+
+  public long getMaxBytes() {
+    return maxWeight;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  public long getRevalidations() {
+    return revalidations.sum();
+  }
+
+  /** Number of entries in a node's partition */
+  public int getPartitionSize(String nodeId) {
+    Partition partition = partitions.get(nodeId);
+    return partition != null ? partition.size() : 0;
+  }
+
+  /** Vary header names recorded for a URI, and how many of its entries use them */
+  private static final class Variants {
+    final String[] names;
+    int entries;
+
+    Variants(String[] names) {
+      this.names = names;
+    }
+  }
+
+  /** The entries of one ring owner, with their own W-TinyLFU queues and sketch under the partition's lock */
+  private final class Partition {
+    final String nodeId;
+    final Map<String, Entry> entries = new HashMap<>();
+    // Only URIs whose responses carried Vary are listed; the others are stored under the bare URI
+    final Map<String, Variants> variants = new HashMap<>();
+    final AccessQueue window = new AccessQueue();
+    final AccessQueue probation = new AccessQueue();
+    final AccessQueue protectedQueue = new AccessQueue();
+    final FrequencySketch sketch = new FrequencySketch(sketchSize);
+    long windowWeight;
+    long probationWeight;
+    long protectedWeight;
+    // Written under the lock, read without it to find the largest partition
+    volatile long partitionWeight;
+    // Set once the partition is out of the map, so late writers cannot strand entries in it
+    boolean removed;
+
+    Partition(String nodeId) {
+      this.nodeId = nodeId;
+    }
+
+    synchronized CachedResponse get(String uri, Headers requestHeaders) {
+      String key = keyFor(uri, requestHeaders);
+      sketch.increment(MurmurHash.hash64(key));
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      onAccess(entry);
+      return entry.response;
+    }
+
+    synchronized void put(String uri, String[] vary, Headers requestHeaders, CachedResponse response,
+      long entryWeight) {
+      if (removed) {
+        return;
+      }
+      String key = variantKey(uri, vary, requestHeaders);
+      Entry existing = entries.get(key);
+      if (existing != null) {
+        removeEntry(existing);
+      }
+
+      Variants uriVariants = null;
+      if (vary.length == 0) {
+        // The URI no longer varies, so lookups go back to the bare URI
+        variants.remove(uri);
+      } else {
+        uriVariants = variants.get(uri);
+        if (uriVariants == null || !Arrays.equals(uriVariants.names, vary)) {
+          uriVariants = new Variants(vary);
+          variants.put(uri, uriVariants);
+        }
+      }
+
+      Entry entry = new Entry(key, uri, uriVariants, response, entryWeight);
+      add(entry, WINDOW, window);
+      overflowWindow();
+    }
+
+    synchronized void revalidated(String uri, Headers requestHeaders, CachedResponse cached, long ttlMs) {
+      Entry entry = entries.get(keyFor(uri, requestHeaders));
+      if (entry == null || entry.response != cached) {
+        return;
+      }
+      if (ttlMs < 0) {
+        removeEntry(entry);
+        return;
+      }
+      long now = System.currentTimeMillis();
+      cached.revalidated(now, now + ttlMs);
+      revalidations.increment();
+    }
+
+    /**
+     * Remove and return the entries to re-home: all of them when the partition has been removed from the map, otherwise
+     * those whose URI now has another owner
+     */
+    synchronized List<Entry> takeEntries(boolean all) {
+      removed |= all;
+      List<Entry> taken = new ArrayList<>();
+      for (Entry entry : entries.values()) {
+        Node owner = all ? null : owners.apply(entry.uri);
+        if (all || owner == null || !owner.getId().equals(nodeId)) {
+          taken.add(entry);
+        }
+      }
+      for (Entry entry : taken) {
+        removeEntry(entry);
+      }
+      return taken;
+    }
+
+    /** Take over an entry from another partition, unless this partition already holds that variant */
+    synchronized boolean adopt(Entry entry) {
+      if (removed || entries.containsKey(entry.key)) {
+        return false;
+      }
+      if (entry.variants != null) {
+        Variants uriVariants = variants.get(entry.uri);
+        if (uriVariants == null) {
+          uriVariants = new Variants(entry.variants.names);
+          variants.put(entry.uri, uriVariants);
+        } else if (!Arrays.equals(uriVariants.names, entry.variants.names)) {
+          return false;
+        }
+        entry.variants = uriVariants;
+      } else if (variants.containsKey(entry.uri)) {
+        return false;
+      }
+      add(entry, PROBATION, probation);
+      return true;
+    }
+
+    synchronized int size() {
+      return entries.size();
+    }
+
+    private String keyFor(String uri, Headers requestHeaders) {
+      Variants uriVariants = variants.get(uri);
+      return variantKey(uri, uriVariants != null ? uriVariants.names : NO_VARY, requestHeaders);
+    }
+
+    private void add(Entry entry, int queue, AccessQueue accessQueue) {
+      entries.put(entry.key, entry);
+      if (entry.variants != null) {
+        entry.variants.entries++;
+      }
+      entry.queue = queue;
+      entry.candidate = false;
+      accessQueue.addFirst(entry);
+      if (queue == WINDOW) {
+        windowWeight += entry.weight;
+      } else {
+        probationWeight += entry.weight;
+      }
+      partitionWeight += entry.weight;
+      weight.addAndGet(entry.weight);
+    }
+
+    /** Update recency for a hit: window and protected entries move to the front, probation entries are promoted */
+    private void onAccess(Entry entry) {
+      switch (entry.queue) {
+        case WINDOW -> window.moveToFront(entry);
+        case PROBATION -> {
+          probation.remove(entry);
+          probationWeight -= entry.weight;
+          entry.candidate = false;
+          entry.queue = PROTECTED;
+          protectedQueue.addFirst(entry);
+          protectedWeight += entry.weight;
+
+          // Keep the protected segment within its share by demoting its least recently used entries
+          long share = partitionShare();
+          long protectedMaxWeight = (long) ((share - windowMaxWeight(share)) * PROTECTED_FRACTION);
+          while (protectedWeight > protectedMaxWeight && protectedQueue.peekLast() != entry) {
+            Entry demoted = protectedQueue.peekLast();
+            protectedQueue.remove(demoted);
+            protectedWeight -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.addFirst(demoted);
+            probationWeight += demoted.weight;
+          }
+        }
+        default -> protectedQueue.moveToFront(entry);
+      }
+    }
+
+    /** Move window overflow into probation, where it competes for admission when the cache next evicts */
+    private void overflowWindow() {
+      long windowMaxWeight = windowMaxWeight(partitionShare());
+      while (windowWeight > windowMaxWeight) {
+        Entry overflow = window.peekLast();
+        window.remove(overflow);
+        windowWeight -= overflow.weight;
+        overflow.queue = PROBATION;
+        overflow.candidate = true;
+        probation.addFirst(overflow);
+        probationWeight += overflow.weight;
+      }
+    }
+
+    /** Evict one entry; false if the partition is empty */
+    synchronized boolean evictOne() {
+      Entry victim = probation.peekLast();
+      if (victim == null) {
+        victim = protectedQueue.peekLast() != null ? protectedQueue.peekLast() : window.peekLast();
+        if (victim == null) {
+          return false;
+        }
+      } else {
+        // TinyLFU admission: the newest candidate from the window only stays if it is more popular than the victim
+        Entry candidate = probation.peekFirst();
+        if (candidate != victim && candidate.candidate) {
+          int candidateFrequency = sketch.frequency(MurmurHash.hash64(candidate.key));
+          int victimFrequency = sketch.frequency(MurmurHash.hash64(victim.key));
+          if (candidateFrequency <= victimFrequency) {
+            victim = candidate;
+          }
+        }
+      }
+      removeEntry(victim);
+      evictions.increment();
+      return true;
+    }
+
+    private void removeEntry(Entry entry) {
+      entries.remove(entry.key);
+      if (entry.variants != null && --entry.variants.entries == 0) {
+        variants.remove(entry.uri, entry.variants);
+      }
+      partitionWeight -= entry.weight;
+      weight.addAndGet(-entry.weight);
+
+      switch (entry.queue) {
+        case WINDOW -> {
+          window.remove(entry);
+          windowWeight -= entry.weight;
+        }
+        case PROBATION -> {
+          probation.remove(entry);
+          probationWeight -= entry.weight;
+        }
+        default -> {
+          protectedQueue.remove(entry);
+          protectedWeight -= entry.weight;
+        }
+      }
+    }
+  }
+
+  private static long windowMaxWeight(long budget) {
+    return Math.max(1, (long) (budget * WINDOW_FRACTION));
+  }
+
+  /** Cache entry, linked into exactly one of its partition's three access-order queues */
+  private static final class Entry {
+    final String key;
+    final String uri;
+    final CachedResponse response;
+    final long weight;
+    Variants variants;
+    int queue;
+    boolean candidate;
+    Entry prev;
+    Entry next;
+
+    Entry(String key, String uri, Variants variants, CachedResponse response, long weight) {
+      this.key = key;
+      this.uri = uri;
+      this.variants = variants;
+      this.response = response;
+      this.weight = weight;
+    }
+  }
+
+  /** Intrusive doubly linked list ordered from most to least recently used */
+  private static final class AccessQueue {
+    private Entry head;
+    private Entry tail;
+
+    void addFirst(Entry entry) {
+      entry.prev = null;
+      entry.next = head;
+      if (head != null) {
+        head.prev = entry;
+      } else {
+        tail = entry;
+      }
+      head = entry;
+    }
+
+    void remove(Entry entry) {
+      if (entry.prev != null) {
+        entry.prev.next = entry.next;
+      } else {
+        head = entry.next;
+      }
+      if (entry.next != null) {
+        entry.next.prev = entry.prev;
+      } else {
+        tail = entry.prev;
+      }
+      entry.prev = null;
+      entry.next = null;
+    }
+
+    void moveToFront(Entry entry) {
+      if (head != entry) {
+        remove(entry);
+        addFirst(entry);
+      }
+    }
+
+    Entry peekFirst() {
+      return head;
+    }
+
+    Entry peekLast() {
+      return tail;
+    }
+  }
+}
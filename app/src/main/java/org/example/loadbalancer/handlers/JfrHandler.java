@@ -0,0 +1,78 @@
+package org.example.loadbalancer.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import org.example.diagnostics.JfrController;
+import org.example.loadbalancer.LoadBalancer;
+import org.example.util.QueryParamParser;
+
+/**
+ * On-demand flight recording: /debug/jfr?action=start[&settings=profile][&maxAgeSeconds=600], ?action=dump to
+ * download the recording so far, ?action=stop, or no action for the current status.
+ */
+public class JfrHandler implements HttpHandler {
+
+  private final LoadBalancer loadBalancer;
+  private final JfrController controller = new JfrController();
+
+  public JfrHandler(LoadBalancer loadBalancer) {
+    this.loadBalancer = loadBalancer;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    String query = exchange.getRequestURI().getQuery();
+    String action = QueryParamParser.getParam(query, "action");
+
+    try {
+      if ("start".equals(action)) {
+        String settings = QueryParamParser.getParam(query, "settings");
+        int maxAgeSeconds = QueryParamParser.getIntParam(query, "maxAgeSeconds", 600);
+        boolean started = controller.start(settings != null ? settings : "default",
+          Duration.ofSeconds(Math.max(1, maxAgeSeconds)));
+        sendJson(exchange, started ? "Recording started" : "A recording is already running");
+      } else if ("dump".equals(action)) {
+        Path file = controller.dump();
+        if (file == null) {
+          loadBalancer.sendErrorResponse(exchange, "No recording is running");
+          return;
+        }
+        try {
+          exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+          exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"load-balancer.jfr\"");
+          exchange.sendResponseHeaders(200, Files.size(file));
+          try (OutputStream os = exchange.getResponseBody()) {
+            Files.copy(file, os);
+          }
+        } finally {
+          Files.deleteIfExists(file);
+        }
+      } else if ("stop".equals(action)) {
+        sendJson(exchange, controller.stop() ? "Recording stopped" : "No recording is running");
+      } else {
+        sendJson(exchange, controller.isRecording() ? "Recording" : "Not recording");
+      }
+    } catch (IOException | ParseException | IllegalStateException e) {
+      loadBalancer.getLogger().log(java.util.logging.Level.WARNING, "JFR {0} failed: {1}",
+        new Object[] { action, e.getMessage() });
+      loadBalancer.sendErrorResponse(exchange, "JFR " + action + " failed: " + e.getMessage());
+    }
+  }
+
+  private void sendJson(HttpExchange exchange, String message) throws IOException {
+    String response = "{\n  \"recording\": " + controller.isRecording() + ",\n  \"message\": \"" + message + "\"\n}\n";
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, response.getBytes(StandardCharsets.UTF_8).length);
+
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(response.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -2,76 +2,156 @@ package org.example.loadbalancer.handlers;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.example.common.Node;
+import org.example.diagnostics.UpstreamForwardEvent;
+import org.example.loadbalancer.CircuitBreaker;
+import org.example.loadbalancer.CircuitOpenException;
+import org.example.loadbalancer.ConcurrencyLimitExceededException;
+import org.example.loadbalancer.ConcurrencyLimiter;
+import org.example.loadbalancer.ForwardResponse;
+import org.example.loadbalancer.HedgingPolicy;
+import org.example.loadbalancer.HotKeySpreader;
+import org.example.loadbalancer.IngressQueue;
 import org.example.loadbalancer.LoadBalancer;
+import org.example.loadbalancer.RequestCoalescer;
+import org.example.loadbalancer.cache.CachedResponse;
+import org.example.loadbalancer.cache.ResponseCache;
+import org.example.metrics.HotKeyTracker;
+import org.example.metrics.RequestLatency;
+import org.example.util.MurmurHash;
 
 public class LoadBalancerHandler implements HttpHandler {
 
+  /** Methods that may be sent again after a failed attempt, and therefore retried on another replica */
+  private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+  /** Methods without side effects, the only ones hedged, since a hedge runs alongside a call still in flight */
+  private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
   private final LoadBalancer loadBalancer;
+  private final List<String> coalescingKeyHeaders;
+  private final int maxRetries;
+  private final boolean spillEnabled;
 
   public LoadBalancerHandler(LoadBalancer loadBalancer) {
     this.loadBalancer = loadBalancer;
+    this.coalescingKeyHeaders = loadBalancer.getConfig().getCoalescingKeyHeaders();
+    this.maxRetries = loadBalancer.getConfig().getFailoverMaxRetries();
+    this.spillEnabled = loadBalancer.getConfig().isConcurrencyLimitEnabled();
   }
 
   @Override
   public void handle(HttpExchange exchange) throws IOException {
+    long startNanos = System.nanoTime();
     loadBalancer.incrementRequestCount();
 
+    // Requests that waited too long in the ingress queue are turned away before any work is done on them
+    if (IngressQueue.isShed()) {
+      loadBalancer.incrementErrorCount();
+      loadBalancer.incrementShedCount();
+      sendOverloaded(exchange, "Load balancer overloaded");
+      return;
+    }
+    loadBalancer.getRetryBudget().onRequest();
+
     // Use client IP + request path as the key for consistent hashing
     String clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
     String path = exchange.getRequestURI().getPath();
     String hashKey = clientIp + path;
+    long keyHash = MurmurHash.hash64(hashKey);
 
-    Node targetNode = loadBalancer.getHashRing().getNode(hashKey);
+    // The owner comes first, followed by the next distinct nodes clockwise for failover and hedging
+    boolean idempotent = IDEMPOTENT_METHODS.contains(exchange.getRequestMethod());
+    int replicaCount = idempotent ? Math.max(1 + maxRetries, loadBalancer.getHedgingPolicy() != null ? 2 : 1) : 1;
+    if (spillEnabled) {
+      // A request turned away at the owner's concurrency limit was never sent, so any method may spill once
+      replicaCount = Math.max(replicaCount, 2);
+    }
+    // Hot keys are spread over their first few successors; every other key stays with its owner
+    HotKeySpreader spreader = loadBalancer.getHotKeySpreader();
+    boolean hot = spreader != null && spreader.record(keyHash);
+    List<Node> ringReplicas = loadBalancer.getHashRing().getNodesForHash(keyHash,
+      hot ? Math.max(replicaCount, spreader.getSuccessors()) : replicaCount);
+    List<Node> replicas = hot ? spreader.spread(ringReplicas, replicaCount) : ringReplicas;
 
-    if (targetNode == null) {
+    if (replicas.isEmpty()) {
       loadBalancer.incrementErrorCount();
       loadBalancer.sendErrorResponse(exchange, "No available servers");
       return;
     }
+    Node targetNode = replicas.get(0);
+    HotKeyTracker hotKeys = loadBalancer.getHotKeyTracker(targetNode.getId());
+    if (hotKeys != null) {
+      hotKeys.record(keyHash, hashKey);
+    }
 
-    // Track request count for this server
-    loadBalancer.getServerRequestCounts().merge(targetNode.getId(), 1L, Long::sum);
+    // Fresh cache hits are answered here without an upstream round trip
+    ResponseCache cache = loadBalancer.getResponseCache();
+    String cacheUri = null;
+    CachedResponse cached = null;
+    if (cache != null && "GET".equals(exchange.getRequestMethod())
+      && ResponseCache.isRequestCacheable(exchange.getRequestHeaders())) {
+      cacheUri = exchange.getRequestURI().toString();
+      cached = cache.get(cacheUri, exchange.getRequestHeaders());
+      if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+        sendCachedResponse(exchange, cached, "HIT");
+        recordLatency(targetNode, startNanos, 0);
+        return;
+      }
+    }
 
     loadBalancer.getLogger().log(java.util.logging.Level.INFO, "Request #{0} from {1} → {2} (key: {3})",
       new Object[] { loadBalancer.getRequestCount(), clientIp, targetNode.getId(), hashKey });
 
     try {
-      // Forward the request to the backend server
-      String targetUrl = "http://" + targetNode.getAddress() + exchange.getRequestURI().toString();
-      ForwardResponse forwardResponse = forwardRequest(targetUrl, exchange);
-
-      // Forward response headers from backend (except Content-Length which we'll set)
-      for (Map.Entry<String, List<String>> header : forwardResponse.headers.entrySet()) {
-        String headerName = header.getKey();
-        if (!headerName.equalsIgnoreCase("Content-Length") && !headerName.equalsIgnoreCase("Transfer-Encoding")) {
-          for (String value : header.getValue()) {
-            exchange.getResponseHeaders().add(headerName, value);
-          }
-        }
-      }
-
-      // Add load balancer header
-      exchange.getResponseHeaders().set("X-Served-By", targetNode.getId());
+      // Buffer the request body once so it can be replayed on another replica
+      byte[] requestBody = readRequestBody(exchange);
+      String ifNoneMatch = cached != null ? cached.etag : null;
+      ForwardResponse forwardResponse;
 
-      // Send response
-      byte[] responseBytes = forwardResponse.body.getBytes(StandardCharsets.UTF_8);
-      exchange.sendResponseHeaders(forwardResponse.statusCode, responseBytes.length);
+      // Identical concurrent GETs to the same node share a single upstream call. Revalidations are not shared
+      // because their outcome depends on the caller's cache entry.
+      RequestCoalescer<ForwardResponse> coalescer = loadBalancer.getRequestCoalescer();
+      if (coalescer != null && "GET".equals(exchange.getRequestMethod()) && ifNoneMatch == null) {
+        forwardResponse = coalescer.execute(coalescingKey(targetNode, exchange),
+          () -> forwardToReplicas(replicas, exchange, requestBody, null, idempotent));
+      } else {
+        forwardResponse = forwardToReplicas(replicas, exchange, requestBody, ifNoneMatch, idempotent);
+      }
 
-      try (OutputStream os = exchange.getResponseBody()) {
-        os.write(responseBytes);
+      if (cacheUri != null) {
+        if (ifNoneMatch != null && forwardResponse.statusCode == 304) {
+          cache.revalidated(cacheUri, exchange.getRequestHeaders(), cached, forwardResponse.headers);
+          sendCachedResponse(exchange, cached, "REVALIDATED");
+          recordLatency(servedNode(replicas, forwardResponse.servedBy), startNanos, forwardResponse.upstreamNanos);
+          return;
+        }
+        cache.put(cacheUri, exchange.getRequestHeaders(), forwardResponse.statusCode, forwardResponse.body,
+          forwardResponse.headers);
+        exchange.getResponseHeaders().set("X-Cache", "MISS");
       }
 
+      sendResponse(exchange, forwardResponse.statusCode, forwardResponse.headers, forwardResponse.body,
+        forwardResponse.servedBy);
+      recordLatency(servedNode(replicas, forwardResponse.servedBy), startNanos, forwardResponse.upstreamNanos);
+
+    } catch (ConcurrencyLimitExceededException e) {
+      loadBalancer.incrementErrorCount();
+      sendOverloaded(exchange, "All backends are at their concurrency limit");
     } catch (IOException e) {
       loadBalancer.incrementErrorCount();
       loadBalancer.getLogger().log(java.util.logging.Level.SEVERE, "Error forwarding request: {0}", e.getMessage());
@@ -79,23 +159,348 @@ public class LoadBalancerHandler implements HttpHandler {
     }
   }
 
-  /** Response from forwarded request */
-  private static class ForwardResponse {
-    final int statusCode;
-    final String body;
-    final Map<String, List<String>> headers;
+  /**
+   * Record end-to-end latency and the part of it the load balancer added on top of the upstream call, for the serving
+   * node and overall
+   */
+  private void recordLatency(Node node, long startNanos, long upstreamNanos) {
+    long endToEnd = System.nanoTime() - startNanos;
+    long overhead = Math.max(0, endToEnd - upstreamNanos);
+    RequestLatency nodeLatency = node.getMetrics().getLatency();
+    nodeLatency.recordEndToEnd(endToEnd);
+    nodeLatency.recordOverhead(overhead);
+    loadBalancer.getLatency().recordEndToEnd(endToEnd);
+    loadBalancer.getLatency().recordOverhead(overhead);
+  }
+
+  /** The replica that produced a response, falling back to the owner for responses shared by coalescing */
+  private static Node servedNode(List<Node> replicas, String servedBy) {
+    for (Node node : replicas) {
+      if (node.getId().equals(servedBy)) {
+        return node;
+      }
+    }
+    return replicas.get(0);
+  }
+
+  /**
+   * Forward to the owner, hedging to the second replica when the owner is slow and failing over clockwise when it
+   * errors. Only safe methods are hedged; other idempotent requests fail over but are never duplicated in flight, and
+   * non-idempotent requests only ever get one attempt.
+   */
+  private ForwardResponse forwardToReplicas(List<Node> replicas, HttpExchange exchange, byte[] requestBody,
+    String ifNoneMatch, boolean idempotent) throws IOException {
+    HedgingPolicy hedging = loadBalancer.getHedgingPolicy();
+    if (hedging != null && idempotent && SAFE_METHODS.contains(exchange.getRequestMethod()) && replicas.size() > 1) {
+      return forwardHedged(replicas, exchange, requestBody, ifNoneMatch, hedging);
+    }
+    return forwardWithFailover(replicas, 0, exchange, requestBody, ifNoneMatch, idempotent);
+  }
+
+  /**
+   * Try replicas in ring order starting at the given index, spending one retry token per extra attempt. Spilling past
+   * a node that is at its concurrency limit or whose breaker refused the request is free, since nothing was sent to
+   * it.
+   */
+  private ForwardResponse forwardWithFailover(List<Node> replicas, int first, HttpExchange exchange,
+    byte[] requestBody, String ifNoneMatch, boolean idempotent) throws IOException {
+    IOException lastError = null;
+    ForwardResponse lastResponse = null;
+    boolean spill = false;
+
+    for (int i = first; i < replicas.size(); i++) {
+      if (spill) {
+        loadBalancer.getLogger().log(java.util.logging.Level.FINE, "Spilling to {0}", replicas.get(i).getId());
+      } else if (i > first) {
+        if (!idempotent || !loadBalancer.getRetryBudget().tryAcquire()) {
+          break;
+        }
+        loadBalancer.getLogger().log(java.util.logging.Level.INFO, "Retrying on {0}", replicas.get(i).getId());
+      }
+
+      try {
+        spill = false;
+        ForwardResponse response = forwardRequest(replicas.get(i), exchange, requestBody, ifNoneMatch);
+        if (!idempotent || !isRetryableStatus(response.statusCode)) {
+          return response;
+        }
+        lastResponse = response;
+      } catch (ConcurrencyLimitExceededException | CircuitOpenException e) {
+        lastError = e;
+        spill = true;
+      } catch (IOException e) {
+        lastError = e;
+        loadBalancer.getLogger().log(java.util.logging.Level.WARNING, "Attempt on {0} failed: {1}",
+          new Object[] { replicas.get(i).getId(), e.getMessage() });
+      }
+    }
+
+    if (lastResponse != null) {
+      return lastResponse;
+    }
+    throw lastError != null ? lastError : new IOException("Retry budget exhausted");
+  }
+
+  /**
+   * Send to the owner and, if it has not answered within the hedging delay, duplicate the request to the second
+   * replica. The first good response wins; the slower call is left to finish on its own timeouts. An owner that fails
+   * or answers with a retryable status before the delay is failed over from, as on the non-hedged path.
+   */
+  private ForwardResponse forwardHedged(List<Node> replicas, HttpExchange exchange, byte[] requestBody,
+    String ifNoneMatch, HedgingPolicy hedging) throws IOException {
+    CompletableFuture<ForwardResponse> primary = forwardAsync(replicas.get(0), exchange, requestBody, ifNoneMatch);
+
+    ForwardResponse early;
+    try {
+      early = primary.get(hedging.getDelayMs(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      if (!loadBalancer.getRetryBudget().tryAcquire()) {
+        return await(primary);
+      }
+      hedging.onHedgeSent();
+      CompletableFuture<ForwardResponse> hedge = forwardAsync(replicas.get(1), exchange, requestBody, ifNoneMatch);
+      ForwardResponse winner = await(firstGood(primary, hedge));
+      if (winner.servedBy.equals(replicas.get(1).getId())) {
+        hedging.onHedgeWon();
+      }
+      return winner;
+    } catch (ExecutionException e) {
+      // The owner failed before the hedge delay; fall back to plain failover on the remaining replicas. Moving past
+      // an owner that never received the request is free, as when spilling.
+      IOException error = unwrap(e);
+      boolean notSent = error instanceof ConcurrencyLimitExceededException || error instanceof CircuitOpenException;
+      if (!notSent && !loadBalancer.getRetryBudget().tryAcquire()) {
+        throw error;
+      }
+      return forwardWithFailover(replicas, 1, exchange, requestBody, ifNoneMatch, true);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for backend", e);
+    }
+
+    if (!isRetryableStatus(early.statusCode) || !loadBalancer.getRetryBudget().tryAcquire()) {
+      return early;
+    }
+    try {
+      ForwardResponse retried = forwardWithFailover(replicas, 1, exchange, requestBody, ifNoneMatch, true);
+      return isRetryableStatus(retried.statusCode) ? early : retried;
+    } catch (IOException e) {
+      return early;
+    }
+  }
+
+  private CompletableFuture<ForwardResponse> forwardAsync(Node node, HttpExchange exchange, byte[] requestBody,
+    String ifNoneMatch) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return forwardRequest(node, exchange, requestBody, ifNoneMatch);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, loadBalancer.getHedgingExecutor());
+  }
+
+  /** Complete with the first non-retryable response, or with the last outcome if neither call produced one */
+  private static CompletableFuture<ForwardResponse> firstGood(CompletableFuture<ForwardResponse> a,
+    CompletableFuture<ForwardResponse> b) {
+    CompletableFuture<ForwardResponse> winner = new CompletableFuture<>();
+    AtomicInteger pending = new AtomicInteger(2);
+    for (CompletableFuture<ForwardResponse> call : List.of(a, b)) {
+      call.whenComplete((response, error) -> {
+        if (error == null && !isRetryableStatus(response.statusCode)) {
+          winner.complete(response);
+        } else if (pending.decrementAndGet() == 0) {
+          if (error == null) {
+            winner.complete(response);
+          } else {
+            winner.completeExceptionally(error);
+          }
+        }
+      });
+    }
+    return winner;
+  }
+
+  private static ForwardResponse await(CompletableFuture<ForwardResponse> future) throws IOException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw unwrap(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for backend", e);
+    }
+  }
+
+  private static IOException unwrap(ExecutionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof UncheckedIOException unchecked) {
+      return unchecked.getCause();
+    }
+    return new IOException(cause.getMessage(), cause);
+  }
+
+  /** Gateway-style failures that another replica may not share */
+  private static boolean isRetryableStatus(int statusCode) {
+    return statusCode == 502 || statusCode == 503 || statusCode == 504;
+  }
+
+  /** Build the coalescing key from the target node, the full URI and the configured request headers */
+  private String coalescingKey(Node targetNode, HttpExchange exchange) {
+    StringBuilder key = new StringBuilder();
+    key.append(targetNode.getId()).append(' ').append(exchange.getRequestURI());
+    for (String headerName : coalescingKeyHeaders) {
+      String value = exchange.getRequestHeaders().getFirst(headerName);
+      if (value != null) {
+        key.append('\n').append(headerName).append(':').append(value);
+      }
+    }
+    return key.toString();
+  }
+
+  /** Fail fast with 503 and ask the client to come back shortly */
+  private void sendOverloaded(HttpExchange exchange, String message) throws IOException {
+    byte[] body = ("{\"error\": \"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.getResponseHeaders().set("Retry-After", "1");
+    exchange.sendResponseHeaders(503, body.length);
+
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  /** Answer from the cache, honouring the client's own If-None-Match */
+  private void sendCachedResponse(HttpExchange exchange, CachedResponse cached, String cacheStatus)
+    throws IOException {
+    long now = System.currentTimeMillis();
+    exchange.getResponseHeaders().set("X-Cache", cacheStatus);
+    exchange.getResponseHeaders().set("Age", String.valueOf(cached.ageSeconds(now)));
+
+    String clientEtag = exchange.getRequestHeaders().getFirst("If-None-Match");
+    if (cached.etag != null && cached.etag.equals(clientEtag)) {
+      exchange.getResponseHeaders().set("ETag", cached.etag);
+      exchange.sendResponseHeaders(304, -1);
+      exchange.close();
+      return;
+    }
+
+    sendResponse(exchange, cached.statusCode, cached.headers, cached.body, null);
+  }
+
+  /** Copy backend headers (except the framing ones we set ourselves) and write the body */
+  private void sendResponse(HttpExchange exchange, int statusCode, Map<String, List<String>> headers, byte[] body,
+    String servedBy) throws IOException {
+    // Forward response headers from backend (except Content-Length which we'll set)
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      String headerName = header.getKey();
+      // HttpURLConnection reports the status line under a null key
+      if (headerName == null) {
+        continue;
+      }
+      if (!headerName.equalsIgnoreCase("Content-Length") && !headerName.equalsIgnoreCase("Transfer-Encoding")
+        && !headerName.equalsIgnoreCase("Age")) {
+        for (String value : header.getValue()) {
+          exchange.getResponseHeaders().add(headerName, value);
+        }
+      }
+    }
+
+    // Add load balancer header
+    if (servedBy != null) {
+      exchange.getResponseHeaders().set("X-Served-By", servedBy);
+    }
+
+    // Send response
+    exchange.sendResponseHeaders(statusCode, body.length);
+
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  /** Read the request body for methods that carry one, or null otherwise */
+  private static byte[] readRequestBody(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    boolean hasBody = method.equals("POST") || method.equals("PUT") || method.equals("PATCH");
+    if (!hasBody) {
+      return null;
+    }
+    try (InputStream requestBody = exchange.getRequestBody()) {
+      return requestBody.readAllBytes();
+    }
+  }
 
-    ForwardResponse(int statusCode, String body, Map<String, List<String>> headers) {
-      this.statusCode = statusCode;
-      this.body = body;
-      this.headers = headers;
+  /** Forward to one node within its concurrency limit and feed the outcome to its limiter and circuit breaker */
+  private ForwardResponse forwardRequest(Node node, HttpExchange exchange, byte[] requestBody, String ifNoneMatch)
+    throws IOException {
+    ConcurrencyLimiter limiter = loadBalancer.getConcurrencyLimiter(node.getId());
+    if (limiter != null && !limiter.tryAcquire()) {
+      throw new ConcurrencyLimitExceededException(node.getId());
+    }
+
+    // The routing filter only reads the breaker; a half-open trial permit is taken here, once the request is sent
+    CircuitBreaker breaker = loadBalancer.getCircuitBreaker(node.getId());
+    if (breaker != null && !breaker.allowRequest()) {
+      if (limiter != null) {
+        limiter.release();
+      }
+      throw new CircuitOpenException(node.getId());
+    }
+    long startNanos = System.nanoTime();
+    node.getMetrics().incrementInFlight();
+    UpstreamForwardEvent event = new UpstreamForwardEvent();
+    event.begin();
+    try {
+      ForwardResponse response = sendUpstream(node, exchange, requestBody, ifNoneMatch);
+      if (event.shouldCommit()) {
+        event.node = node.getId();
+        event.status = response.statusCode;
+        event.requestBytes = requestBody != null ? requestBody.length : 0;
+        event.responseBytes = response.body != null ? response.body.length : 0;
+        event.commit();
+      }
+      node.getMetrics().getLatency().recordUpstream(response.upstreamNanos);
+      loadBalancer.getLatency().recordUpstream(response.upstreamNanos);
+      if (limiter != null) {
+        limiter.onSuccess(System.nanoTime() - startNanos);
+      }
+      if (breaker != null) {
+        if (response.statusCode >= 500) {
+          breaker.recordFailure();
+        } else {
+          breaker.recordSuccess();
+        }
+      }
+      return response;
+    } catch (IOException e) {
+      if (event.shouldCommit()) {
+        event.node = node.getId();
+        event.requestBytes = requestBody != null ? requestBody.length : 0;
+        event.error = e.getMessage();
+        event.commit();
+      }
+      if (limiter != null) {
+        limiter.onFailure();
+      }
+      if (breaker != null) {
+        breaker.recordFailure();
+      }
+      throw e;
+    } finally {
+      node.getMetrics().decrementInFlight();
     }
   }
 
   /** Forward request to backend server with headers and body */
   @SuppressWarnings("deprecation")
-  private ForwardResponse forwardRequest(String targetUrl, HttpExchange exchange) throws IOException {
-    URL url = new URL(targetUrl);
+  private ForwardResponse sendUpstream(Node node, HttpExchange exchange, byte[] requestBody, String ifNoneMatch)
+    throws IOException {
+    // Track request count for this server
+    node.getMetrics().recordRequest();
+    long startNanos = System.nanoTime();
+
+    URL url = new URL("http://" + node.getAddress() + exchange.getRequestURI().toString());
     HttpURLConnection conn = (HttpURLConnection) url.openConnection();
     conn.setRequestMethod(exchange.getRequestMethod());
     conn.setConnectTimeout(5000);
@@ -112,14 +517,16 @@ public class LoadBalancerHandler implements HttpHandler {
       }
     }
 
-    // Forward request body if present
-    boolean hasBody = exchange.getRequestMethod().equals("POST") || exchange.getRequestMethod().equals("PUT")
-      || exchange.getRequestMethod().equals("PATCH");
+    // Revalidate a stale cache entry instead of refetching it
+    if (ifNoneMatch != null) {
+      conn.setRequestProperty("If-None-Match", ifNoneMatch);
+    }
 
-    if (hasBody) {
+    // Forward request body if present
+    if (requestBody != null) {
       conn.setDoOutput(true);
-      try (InputStream requestBody = exchange.getRequestBody(); OutputStream connOut = conn.getOutputStream()) {
-        requestBody.transferTo(connOut);
+      try (OutputStream connOut = conn.getOutputStream()) {
+        connOut.write(requestBody);
       }
     }
 
@@ -129,20 +536,20 @@ public class LoadBalancerHandler implements HttpHandler {
 
     InputStream inputStream = statusCode >= 200 && statusCode < 300 ? conn.getInputStream() : conn.getErrorStream();
 
-    StringBuilder responseBody = new StringBuilder();
+    byte[] responseBody = new byte[0];
     if (inputStream != null) {
-      try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-          if (responseBody.length() > 0) {
-            responseBody.append("\n");
-          }
-          responseBody.append(line);
-        }
+      try (InputStream in = inputStream) {
+        responseBody = in.readAllBytes();
       }
     }
 
     conn.disconnect();
-    return new ForwardResponse(statusCode, responseBody.toString(), responseHeaders);
+
+    long upstreamNanos = System.nanoTime() - startNanos;
+    HedgingPolicy hedging = loadBalancer.getHedgingPolicy();
+    if (hedging != null) {
+      hedging.recordLatency(TimeUnit.NANOSECONDS.toMillis(upstreamNanos));
+    }
+    return new ForwardResponse(statusCode, responseBody, responseHeaders, node.getId(), upstreamNanos);
   }
 }
@@ -0,0 +1,36 @@
+package org.example.loadbalancer.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.example.loadbalancer.LoadBalancer;
+import org.example.metrics.OpenMetricsWriter;
+
+/** Serves the load balancer's metrics in the OpenMetrics text format for Prometheus scrapes */
+public class MetricsHandler implements HttpHandler {
+
+  private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+  private final LoadBalancer loadBalancer;
+  // One buffer per ingress worker, reused across scrapes, so a slow scraper never holds up another
+  private final ThreadLocal<OpenMetricsWriter> writers = ThreadLocal.withInitial(OpenMetricsWriter::new);
+
+  public MetricsHandler(LoadBalancer loadBalancer) {
+    this.loadBalancer = loadBalancer;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+    OpenMetricsWriter writer = writers.get();
+    writer.reset();
+    loadBalancer.writeMetrics(writer);
+    exchange.sendResponseHeaders(200, writer.size());
+    try (OutputStream os = exchange.getResponseBody()) {
+      writer.writeTo(os);
+    }
+
+    loadBalancer.getLogger().fine("Metrics scraped");
+  }
+}
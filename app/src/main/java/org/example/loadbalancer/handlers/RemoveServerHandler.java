@@ -31,6 +31,10 @@ public class RemoveServerHandler implements HttpHandler {
       loadBalancer.sendErrorResponse(exchange, "Server not found: " + nodeId);
       return;
     }
+    if (node.isDraining()) {
+      loadBalancer.sendErrorResponse(exchange, "Server is already draining: " + nodeId);
+      return;
+    }
 
     loadBalancer.removeServerNode(nodeId);
 
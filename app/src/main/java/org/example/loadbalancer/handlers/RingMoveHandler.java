@@ -0,0 +1,60 @@
+package org.example.loadbalancer.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.example.loadbalancer.LoadBalancer;
+import org.example.metrics.JsonWriter;
+import org.example.util.QueryParamParser;
+
+/**
+ * Rebalance by hand: /ring/move?node=&index=&to= lends virtual node index of node to another node, so that arc's keys
+ * go there; to=node gives it back.
+ */
+public class RingMoveHandler implements HttpHandler {
+
+  private final LoadBalancer loadBalancer;
+
+  public RingMoveHandler(LoadBalancer loadBalancer) {
+    this.loadBalancer = loadBalancer;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    String query = exchange.getRequestURI().getQuery();
+    String nodeId = QueryParamParser.getParam(query, "node");
+    int index = QueryParamParser.getIntParam(query, "index", -1);
+    String toNodeId = QueryParamParser.getParam(query, "to");
+
+    if (nodeId == null || nodeId.isEmpty() || toNodeId == null || toNodeId.isEmpty() || index < 0) {
+      loadBalancer.sendErrorResponse(exchange, "Missing 'node', 'index' or 'to' parameter");
+      return;
+    }
+    if (!loadBalancer.getHashRing().moveVirtualNode(nodeId, index, toNodeId)) {
+      loadBalancer.sendErrorResponse(exchange, "Unknown node or virtual node index: " + nodeId + "#" + index + " -> "
+        + toNodeId);
+      return;
+    }
+    loadBalancer.onRingOwnershipChanged();
+
+    loadBalancer.getLogger().info(loadBalancer.getHashRing().getStats());
+
+    JsonWriter json = new JsonWriter(256);
+    json.beginObject();
+    json.name("status").value("success");
+    json.name("message").value(nodeId.equals(toNodeId) ? "Virtual node returned" : "Virtual node moved");
+    json.name("node").value(nodeId);
+    json.name("index").value(index);
+    json.name("owner").value(toNodeId);
+    json.endObject();
+    byte[] response = json.toByteArray();
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, response.length);
+
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(response);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package org.example.loadbalancer.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.example.loadbalancer.LoadBalancer;
+import org.example.metrics.JsonWriter;
+import org.example.ring.ConsistentHashRing;
+import org.example.util.QueryParamParser;
+
+/**
+ * Skew report: /ring/skew?top=10 lists the busiest ring arcs with their share of traffic next to their share of the
+ * keyspace, and the same totals per owning node. A skew well above 1 marks an arc that is hot because of its keys, not
+ * its size.
+ */
+public class RingSkewHandler implements HttpHandler {
+
+  private final LoadBalancer loadBalancer;
+
+  public RingSkewHandler(LoadBalancer loadBalancer) {
+    this.loadBalancer = loadBalancer;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    ConsistentHashRing ring = loadBalancer.getHashRing();
+    if (ring.getHitSampleEvery() <= 0) {
+      loadBalancer.sendErrorResponse(exchange, "Per-virtual-node counters are off; set vnode.stats.sample.every");
+      return;
+    }
+    int top = Math.max(1, QueryParamParser.getIntParam(exchange.getRequestURI().getQuery(), "top", 10));
+
+    List<ConsistentHashRing.ArcLoad> arcs = new ArrayList<>(ring.getArcLoads());
+    long totalHits = 0;
+    Map<String, double[]> owners = new LinkedHashMap<>(); // positions, hits, keyspace share
+    for (ConsistentHashRing.ArcLoad arc : arcs) {
+      totalHits += arc.hits();
+      double[] owner = owners.computeIfAbsent(arc.owner(), id -> new double[3]);
+      owner[0]++;
+      owner[1] += arc.hits();
+      owner[2] += arc.keyspaceShare();
+    }
+    arcs.sort(Comparator.comparingLong(ConsistentHashRing.ArcLoad::hits).reversed());
+
+    JsonWriter json = new JsonWriter(1024 + top * 192 + owners.size() * 128);
+    json.beginObject();
+    json.name("sampleEvery").value(ring.getHitSampleEvery());
+    json.name("positions").value(arcs.size());
+    json.name("totalHits").value(totalHits);
+
+    json.name("nodes").beginArray();
+    for (Map.Entry<String, double[]> owner : owners.entrySet()) {
+      double[] totals = owner.getValue();
+      json.beginObject();
+      json.name("id").value(owner.getKey());
+      json.name("positions").value((long) totals[0]);
+      json.name("hits").value((long) totals[1]);
+      writeShares(json, (long) totals[1], totalHits, totals[2]);
+      json.endObject();
+    }
+    json.endArray();
+
+    json.name("arcs").beginArray();
+    for (ConsistentHashRing.ArcLoad arc : arcs.subList(0, Math.min(top, arcs.size()))) {
+      json.beginObject();
+      json.name("node").value(arc.node());
+      json.name("index").value(arc.index());
+      json.name("owner").value(arc.owner());
+      json.name("hits").value(arc.hits());
+      writeShares(json, arc.hits(), totalHits, arc.keyspaceShare());
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    byte[] response = json.toByteArray();
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*"); // Enable CORS for UI
+    exchange.sendResponseHeaders(200, response.length);
+
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(response);
+    }
+  }
+
+  /** Traffic and keyspace shares as percentages, and their ratio (1 when traffic follows the keyspace) */
+  private static void writeShares(JsonWriter json, long hits, long totalHits, double keyspaceShare) {
+    double trafficShare = totalHits > 0 ? (double) hits / totalHits : 0;
+    json.name("trafficPercentage").value(trafficShare * 100);
+    json.name("keyspacePercentage").value(keyspaceShare * 100);
+    json.name("skew").value(keyspaceShare > 0 ? trafficShare / keyspaceShare : 0);
+  }
+}
@@ -7,8 +7,10 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import org.example.common.Node;
 import org.example.loadbalancer.LoadBalancer;
+import org.example.loadbalancer.ScaleDownPlanner;
+import org.example.metrics.JsonWriter;
+import org.example.util.QueryParamParser;
 
 public class ScaleDownHandler implements HttpHandler {
 
@@ -21,7 +23,7 @@ public class ScaleDownHandler implements HttpHandler {
   @Override
   public void handle(HttpExchange exchange) throws IOException {
     String query = exchange.getRequestURI().getQuery();
-    int count = org.example.util.QueryParamParser.getIntParam(query, "count", 1);
+    int count = QueryParamParser.getIntParam(query, "count", 1);
 
     if (count < 1) {
       loadBalancer.sendErrorResponse(exchange, "Count must be at least 1");
@@ -35,16 +37,20 @@ public class ScaleDownHandler implements HttpHandler {
       return;
     }
 
+    ScaleDownPlanner.Plan plan = loadBalancer.planScaleDown(count);
+    if ("true".equalsIgnoreCase(QueryParamParser.getParam(query, "dryRun"))) {
+      sendPlan(exchange, plan);
+      return;
+    }
+
     try {
       List<String> removedServers = new ArrayList<>();
       loadBalancer.getLogger().log(java.util.logging.Level.INFO, "Scaling down by {0} server(s)", count);
 
-      // Get list of servers and remove the last N servers
-      List<Node> nodes = new ArrayList<>(loadBalancer.getServerManager().getNodes());
-      for (int i = 0; i < count && i < nodes.size(); i++) {
-        Node node = nodes.get(nodes.size() - 1 - i);
-        loadBalancer.removeServerNode(node.getId());
-        removedServers.add(node.getId());
+      // Remove the servers whose removal shifts the least traffic
+      for (String nodeId : plan.victimIds()) {
+        loadBalancer.removeServerNode(nodeId);
+        removedServers.add(nodeId);
       }
 
       loadBalancer.getLogger().info(loadBalancer.getHashRing().getStats());
@@ -76,4 +82,23 @@ public class ScaleDownHandler implements HttpHandler {
       loadBalancer.sendErrorResponse(exchange, "Error scaling down: " + e.getMessage());
     }
   }
+
+  /** Answer a dry run with the plan: the chosen victims, the expected traffic shift and the full ranking */
+  static void sendPlan(HttpExchange exchange, ScaleDownPlanner.Plan plan) throws IOException {
+    JsonWriter json = new JsonWriter(512 + plan.ranking().size() * 160);
+    json.beginObject();
+    json.name("status").value("success");
+    json.name("dryRun").value(true);
+    json.name("plan");
+    plan.writeJson(json);
+    json.endObject();
+    byte[] response = json.toByteArray();
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, response.length);
+
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(response);
+    }
+  }
 }
@@ -29,6 +29,11 @@ public class ScaleHandler implements HttpHandler {
     }
 
     int currentCount = loadBalancer.getServerManager().getServerCount();
+    if ("true".equalsIgnoreCase(org.example.util.QueryParamParser.getParam(query, "dryRun"))) {
+      // Only a scale-down has victims to plan; a scale-up or no change yields an empty plan
+      ScaleDownHandler.sendPlan(exchange, loadBalancer.planScaleDown(Math.max(0, currentCount - targetCount)));
+      return;
+    }
 
     try {
       String action;
@@ -42,8 +47,7 @@ public class ScaleHandler implements HttpHandler {
         loadBalancer.getLogger().log(java.util.logging.Level.INFO, "Scaling to {0} servers (adding {1})",
           new Object[] { targetCount, changeCount });
 
-        for (int i = 0; i < changeCount; i++) {
-          Node node = loadBalancer.addServerNode();
+        for (Node node : loadBalancer.addServerNodes(changeCount)) {
           changedServers.add(node.getId());
         }
 
@@ -54,11 +58,10 @@ public class ScaleHandler implements HttpHandler {
         loadBalancer.getLogger().log(java.util.logging.Level.INFO, "Scaling to {0} servers (removing {1})",
           new Object[] { targetCount, changeCount });
 
-        List<Node> nodes = new ArrayList<>(loadBalancer.getServerManager().getNodes());
-        for (int i = 0; i < changeCount; i++) {
-          Node node = nodes.get(nodes.size() - 1 - i);
-          loadBalancer.removeServerNode(node.getId());
-          changedServers.add(node.getId());
+        // Remove the servers whose removal shifts the least traffic
+        for (String nodeId : loadBalancer.planScaleDown(changeCount).victimIds()) {
+          loadBalancer.removeServerNode(nodeId);
+          changedServers.add(nodeId);
         }
 
       } else {
@@ -32,8 +32,7 @@ public class ScaleUpHandler implements HttpHandler {
       List<String> addedServers = new ArrayList<>();
       loadBalancer.getLogger().log(java.util.logging.Level.INFO, "Scaling up by {0} server(s)", count);
 
-      for (int i = 0; i < count; i++) {
-        Node node = loadBalancer.addServerNode();
+      for (Node node : loadBalancer.addServerNodes(count)) {
         addedServers.add(node.getId());
       }
 
@@ -51,7 +50,7 @@ public class ScaleUpHandler implements HttpHandler {
         {
           "status": "success",
           "message": "Scaled up successfully",
-          "serversAdded": """ + count + ",\n" + "  \"serverIds\": [" + serversJson.toString() + "],\n"
+          "serversAdded": """ + addedServers.size() + ",\n" + "  \"serverIds\": [" + serversJson.toString() + "],\n"
         + "  \"totalServers\": " + loadBalancer.getServerManager().getServerCount() + "\n" + "}\n";
 
       exchange.getResponseHeaders().set("Content-Type", "application/json");
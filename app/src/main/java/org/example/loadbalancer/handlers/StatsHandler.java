@@ -4,7 +4,6 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import org.example.loadbalancer.LoadBalancer;
 
 public class StatsHandler implements HttpHandler {
@@ -17,13 +16,14 @@ public class StatsHandler implements HttpHandler {
 
   @Override
   public void handle(HttpExchange exchange) throws IOException {
-    String response = loadBalancer.generateStatsJson();
+    // The snapshot is encoded once per tick and shared, so serving it is just a copy
+    byte[] response = loadBalancer.getStatsSnapshot().getJson();
     exchange.getResponseHeaders().set("Content-Type", "application/json");
     exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*"); // Enable CORS for UI
-    exchange.sendResponseHeaders(200, response.getBytes(StandardCharsets.UTF_8).length);
+    exchange.sendResponseHeaders(200, response.length);
 
     try (OutputStream os = exchange.getResponseBody()) {
-      os.write(response.getBytes(StandardCharsets.UTF_8));
+      os.write(response);
     }
 
     loadBalancer.getLogger().info("Stats requested");
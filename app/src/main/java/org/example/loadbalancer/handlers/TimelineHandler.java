@@ -0,0 +1,53 @@
+package org.example.loadbalancer.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.example.loadbalancer.LoadBalancer;
+import org.example.metrics.JsonWriter;
+import org.example.metrics.Timeline;
+import org.example.util.QueryParamParser;
+
+/** Serves the request rate timeline: /timeline?from=&to=&step= with epoch seconds, defaulting to the last hour */
+public class TimelineHandler implements HttpHandler {
+
+  private final LoadBalancer loadBalancer;
+
+  public TimelineHandler(LoadBalancer loadBalancer) {
+    this.loadBalancer = loadBalancer;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    String query = exchange.getRequestURI().getQuery();
+    long now = System.currentTimeMillis() / 1000;
+    long to = QueryParamParser.getLongParam(query, "to", now);
+    long from = QueryParamParser.getLongParam(query, "from", to - 3600);
+    int step = QueryParamParser.getIntParam(query, "step", 1);
+
+    if (from > to || step < 1) {
+      loadBalancer.sendErrorResponse(exchange, "from must not be after to, and step must be at least 1");
+      return;
+    }
+
+    Timeline.Series series = loadBalancer.getTimeline(from, to, step);
+    JsonWriter json = new JsonWriter(256 + series.timestamps().length * 96);
+    json.beginObject();
+    json.name("from").value(from);
+    json.name("to").value(to);
+    json.name("step").value(series.stepSeconds());
+    json.name("points");
+    series.writePoints(json);
+    json.endObject();
+    byte[] response = json.toByteArray();
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*"); // Enable CORS for UI
+    exchange.sendResponseHeaders(200, response.length);
+
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(response);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.example.loadbalancer.scaling;
+
+/**
+ * Scales ahead of demand with a Holt-Winters forecast of the request rate: an exponentially smoothed level and trend,
+ * plus an additive seasonal component when a season length is set.
+ *
+ * <p>
+ * Each check forecasts the rate over the time a new backend takes to start plus one check interval, and sizes the
+ * pool for the highest point of that horizon (or the current rate, if higher), so capacity is ready when the demand
+ * arrives. Step sizes follow from the forecast rather than a fixed cap. Scaling down needs the forecast to fit in the
+ * smaller pool with room to spare (the hysteresis fraction) for several consecutive checks, so spikes and forecast
+ * noise do not flap the pool.
+ */
+public class ForecastScalingPolicy implements ScalingPolicy {
+
+  private final double targetPerServer;
+  private final double alpha;
+  private final double beta;
+  private final double gamma;
+  private final double[] seasonal;
+  private final double hysteresis;
+  private final int scaleDownChecks;
+
+  private boolean initialized;
+  private double level;
+  private double trend;
+  private long step;
+  private int checksBelow;
+
+  /**
+   * @param seasonLength
+   *          checks per season, or 0 for a trend-only forecast
+   */
+  public ForecastScalingPolicy(double targetPerServer, double alpha, double beta, double gamma, int seasonLength,
+    double hysteresis, int scaleDownChecks) {
+    this.targetPerServer = targetPerServer;
+    this.alpha = alpha;
+    this.beta = beta;
+    this.gamma = gamma;
+    this.seasonal = seasonLength > 1 ? new double[seasonLength] : null;
+    this.hysteresis = Math.max(0, Math.min(hysteresis, 0.9));
+    this.scaleDownChecks = Math.max(1, scaleDownChecks);
+  }
+
+  @Override
+  public String name() {
+    return seasonal != null ? "forecast (Holt-Winters)" : "forecast (Holt)";
+  }
+
+  @Override
+  public synchronized ScalingDecision decide(LoadSample sample) {
+    double rate = sample.requestsPerSecond();
+    observe(rate);
+
+    int interval = Math.max(1, sample.checkIntervalSeconds());
+    int horizon = (int) Math.max(1, Math.ceil((sample.startupMillis() / 1000.0 + interval) / interval));
+    double peak = rate;
+    for (int h = 1; h <= horizon; h++) {
+      peak = Math.max(peak, forecast(h));
+    }
+
+    int servers = sample.servers();
+    int needed = (int) Math.ceil(peak / targetPerServer);
+    if (sample.saturated()) {
+      needed = Math.max(needed, servers + 1);
+    }
+    if (needed > servers) {
+      checksBelow = 0;
+      return new ScalingDecision(needed, String.format("forecast %.1f req/s within %ds needs %d servers", peak,
+        horizon * interval, needed), peak);
+    }
+
+    // Only shrink to a pool that would still run below the target by the hysteresis margin
+    int keep = Math.max(1, (int) Math.ceil(peak / (targetPerServer * (1 - hysteresis))));
+    if (keep < servers && !sample.saturated()) {
+      if (++checksBelow >= scaleDownChecks) {
+        checksBelow = 0;
+        return new ScalingDecision(keep, String.format("forecast %.1f req/s within %ds fits %d servers", peak,
+          horizon * interval, keep), peak);
+      }
+      return new ScalingDecision(servers, String.format("scale-down pending (%d/%d checks)", checksBelow,
+        scaleDownChecks), peak);
+    }
+    checksBelow = 0;
+    return new ScalingDecision(servers, "forecast fits current servers", peak);
+  }
+
+  /** Fold one observed rate into the level, trend and seasonal components */
+  private void observe(double rate) {
+    int season = seasonal != null ? (int) (step % seasonal.length) : 0;
+    double seasonalPart = seasonal != null ? seasonal[season] : 0;
+    if (!initialized) {
+      level = rate;
+      trend = 0;
+      initialized = true;
+    } else {
+      double previousLevel = level;
+      level = alpha * (rate - seasonalPart) + (1 - alpha) * (level + trend);
+      trend = beta * (level - previousLevel) + (1 - beta) * trend;
+      if (seasonal != null) {
+        seasonal[season] = gamma * (rate - level) + (1 - gamma) * seasonalPart;
+      }
+    }
+    step++;
+  }
+
+  /** Rate forecast h checks after the last observation, never negative */
+  private double forecast(int h) {
+    double seasonalPart = seasonal != null ? seasonal[(int) ((step - 1 + h) % seasonal.length)] : 0;
+    return Math.max(0, level + h * trend + seasonalPart);
+  }
+}
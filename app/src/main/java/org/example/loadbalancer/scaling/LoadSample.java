@@ -0,0 +1,28 @@
+package org.example.loadbalancer.scaling;
+
+import java.util.List;
+
+/**
+ * What the auto-scaler saw in one check: the request rate over the check interval, the servers serving it, whether
+ * any backend turned requests away at its concurrency limit, and how long a new backend currently takes to start.
+ * Latency-driven policies also get the load balancer's end-to-end p99 of the last latency window and each serving
+ * node's load.
+ */
+public record LoadSample(long timeMillis, double requestsPerSecond, int servers, boolean saturated,
+  int checkIntervalSeconds, long startupMillis, double p99Millis, List<NodeLoad> nodes) {
+
+  public double avgRequestsPerServer() {
+    return servers > 0 ? requestsPerSecond / servers : 0;
+  }
+
+  /** Fraction of the serving nodes' combined capacity that is busy, 0 if no node reports a capacity */
+  public double utilization() {
+    double busy = 0;
+    int capacity = 0;
+    for (NodeLoad node : nodes) {
+      busy += node.concurrency();
+      capacity += node.capacity();
+    }
+    return capacity > 0 ? busy / capacity : 0;
+  }
+}
@@ -0,0 +1,17 @@
+package org.example.loadbalancer.scaling;
+
+/**
+ * One serving node as the auto-scaler saw it: its request rate, the median and p99 upstream latency of the last
+ * latency window, the requests it had in flight at the check, and how many it can serve at once.
+ */
+public record NodeLoad(String id, double requestsPerSecond, double p50Millis, double p99Millis, int inFlight,
+  int capacity) {
+
+  /**
+   * Requests the node is busy with on average: the larger of the in-flight count at the check and the rate times the
+   * median latency (Little's law), so a momentary lull in flight does not hide a steadily loaded node
+   */
+  public double concurrency() {
+    return Math.max(inFlight, requestsPerSecond * p50Millis / 1000.0);
+  }
+}
@@ -0,0 +1,10 @@
+package org.example.loadbalancer.scaling;
+
+/** Server count a policy wants, why, and the request rate it forecast (NaN if it does not forecast) */
+public record ScalingDecision(int targetServers, String reason, double forecastRequestsPerSecond) {
+
+  /** Keep the current server count */
+  public static ScalingDecision hold(LoadSample sample, String reason) {
+    return new ScalingDecision(sample.servers(), reason, Double.NaN);
+  }
+}
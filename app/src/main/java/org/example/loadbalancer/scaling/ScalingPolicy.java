@@ -0,0 +1,14 @@
+package org.example.loadbalancer.scaling;
+
+/**
+ * Decides how many servers the pool should have. The auto-scaler asks once per check, including checks that fall in
+ * a cooldown, so a policy that keeps history sees every sample; it then clamps the answer to the configured range and
+ * adds or removes servers to match.
+ */
+public interface ScalingPolicy {
+
+  /** Short name shown in /stats */
+  String name();
+
+  ScalingDecision decide(LoadSample sample);
+}
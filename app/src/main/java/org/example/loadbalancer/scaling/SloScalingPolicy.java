@@ -0,0 +1,85 @@
+package org.example.loadbalancer.scaling;
+
+/**
+ * Sizes the pool for a p99 latency objective and a target utilization instead of a request rate, so it needs no
+ * estimate of what one backend can serve.
+ *
+ * <p>
+ * The SLO burns when the load balancer's end-to-end p99 exceeds the objective. The pool then grows in proportion to
+ * the overshoot (one server at least, doubling at most), or to the size that brings utilization back to the target if
+ * that is larger. Utilization above the target grows the pool the same way before latency suffers. Scaling down
+ * needs both latency and utilization to stay below their targets by the headroom fraction for several consecutive
+ * checks, and removes one server at a time, since latency reacts to a smaller pool only after the fact.
+ */
+public class SloScalingPolicy implements ScalingPolicy {
+
+  private final double p99TargetMillis;
+  private final double targetUtilization;
+  private final double headroom;
+  private final int scaleDownChecks;
+
+  private int checksWithHeadroom;
+
+  public SloScalingPolicy(double p99TargetMillis, double targetUtilization, double headroom, int scaleDownChecks) {
+    this.p99TargetMillis = p99TargetMillis;
+    this.targetUtilization = Math.max(0.05, Math.min(targetUtilization, 1));
+    this.headroom = Math.max(0, Math.min(headroom, 0.9));
+    this.scaleDownChecks = Math.max(1, scaleDownChecks);
+  }
+
+  @Override
+  public String name() {
+    return "slo";
+  }
+
+  @Override
+  public synchronized ScalingDecision decide(LoadSample sample) {
+    int servers = sample.servers();
+    double p99 = sample.p99Millis();
+    double utilization = sample.utilization();
+    // Servers that would run the current load at the target utilization
+    int needed = (int) Math.ceil(servers * utilization / targetUtilization);
+
+    if (p99 > p99TargetMillis) {
+      checksWithHeadroom = 0;
+      int add = (int) Math.max(1, Math.ceil(servers * Math.min(1, p99 / p99TargetMillis - 1)));
+      return new ScalingDecision(Math.max(needed, servers + add), String.format("p99 %.1fms > SLO %.1fms (%d of %d "
+        + "nodes over, utilization %.0f%%)", p99, p99TargetMillis, nodesOverSlo(sample), servers, utilization * 100),
+        Double.NaN);
+    }
+    if (utilization > targetUtilization || sample.saturated()) {
+      checksWithHeadroom = 0;
+      String reason = sample.saturated()
+        ? "backends at their concurrency limits"
+        : String.format("utilization %.0f%% > target %.0f%%", utilization * 100, targetUtilization * 100);
+      return new ScalingDecision(Math.max(needed, servers + 1), reason, Double.NaN);
+    }
+
+    boolean latencyHeadroom = p99 <= p99TargetMillis * (1 - headroom);
+    // The pool one server smaller must still run below the target utilization by the headroom fraction
+    boolean utilizationHeadroom = servers > 1
+      && servers * utilization / (servers - 1) <= targetUtilization * (1 - headroom);
+    if (latencyHeadroom && utilizationHeadroom) {
+      if (++checksWithHeadroom >= scaleDownChecks) {
+        checksWithHeadroom = 0;
+        return new ScalingDecision(servers - 1, String.format("p99 %.1fms and utilization %.0f%% below targets for "
+          + "%d checks", p99, utilization * 100, scaleDownChecks), Double.NaN);
+      }
+      return ScalingDecision.hold(sample, String.format("scale-down pending (%d/%d checks)", checksWithHeadroom,
+        scaleDownChecks));
+    }
+    checksWithHeadroom = 0;
+    return ScalingDecision.hold(sample, String.format("within SLO (p99 %.1fms, utilization %.0f%%)", p99,
+      utilization * 100));
+  }
+
+  private int nodesOverSlo(LoadSample sample) {
+    int over = 0;
+    for (NodeLoad node : sample.nodes()) {
+      if (node.p99Millis() > p99TargetMillis) {
+        over++;
+      }
+    }
+    return over;
+  }
+}
@@ -0,0 +1,63 @@
+package org.example.loadbalancer.scaling;
+
+/**
+ * Reacts to the last interval alone: scales up when the average rate per server rises above the target plus the
+ * scale-up threshold, or when backends are saturated, and down when it falls below the target minus the scale-down
+ * threshold. Steps move toward the ideal count for the current rate, at most two servers up or one down at a time.
+ */
+public class ThresholdScalingPolicy implements ScalingPolicy {
+
+  private static final int MAX_STEP_UP = 2;
+  private static final int MAX_STEP_DOWN = 1;
+
+  private final double targetPerServer;
+  private final double scaleUpThreshold;
+  private final double scaleDownThreshold;
+  private final int minServers;
+  private final int maxServers;
+
+  public ThresholdScalingPolicy(double targetPerServer, double scaleUpThreshold, double scaleDownThreshold,
+    int minServers, int maxServers) {
+    this.targetPerServer = targetPerServer;
+    this.scaleUpThreshold = scaleUpThreshold;
+    this.scaleDownThreshold = scaleDownThreshold;
+    this.minServers = minServers;
+    this.maxServers = maxServers;
+  }
+
+  @Override
+  public String name() {
+    return "threshold";
+  }
+
+  @Override
+  public ScalingDecision decide(LoadSample sample) {
+    // Prevent scaling when there are no requests (avoid unnecessary scaling)
+    if (sample.requestsPerSecond() == 0) {
+      return ScalingDecision.hold(sample, "no requests");
+    }
+
+    int servers = sample.servers();
+    double avg = sample.avgRequestsPerServer();
+    int ideal = (int) Math.ceil(sample.requestsPerSecond() / targetPerServer);
+    ideal = Math.max(minServers, Math.min(ideal, maxServers));
+    double scaleUpBound = targetPerServer + scaleUpThreshold;
+    double scaleDownBound = targetPerServer - scaleDownThreshold;
+
+    if ((avg > scaleUpBound || sample.saturated()) && servers < maxServers) {
+      int add = Math.max(1, Math.min(ideal - servers, maxServers - servers));
+      String reason = avg > scaleUpBound
+        ? String.format("avg %.1f req/s per server > %.1f req/s (target %.1f + threshold %.1f)", avg, scaleUpBound,
+          targetPerServer, scaleUpThreshold)
+        : "backends at their concurrency limits";
+      return new ScalingDecision(servers + Math.min(add, MAX_STEP_UP), reason, Double.NaN);
+    }
+    if (!sample.saturated() && avg < scaleDownBound && servers > minServers) {
+      int remove = Math.max(1, Math.min(servers - ideal, servers - minServers));
+      String reason = String.format("avg %.1f req/s per server < %.1f req/s (target %.1f - threshold %.1f)", avg,
+        scaleDownBound, targetPerServer, scaleDownThreshold);
+      return new ScalingDecision(servers - Math.min(remove, MAX_STEP_DOWN), reason, Double.NaN);
+    }
+    return ScalingDecision.hold(sample, "within thresholds");
+  }
+}
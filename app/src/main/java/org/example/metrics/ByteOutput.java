@@ -0,0 +1,129 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/** Growable byte buffer with allocation-free number and text encoding, shared by the metrics writers */
+final class ByteOutput {
+
+  private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000, 100_000, 1_000_000 };
+
+  private byte[] buffer;
+  private int length;
+
+  ByteOutput(int initialCapacity) {
+    buffer = new byte[initialCapacity];
+  }
+
+  void reset() {
+    length = 0;
+  }
+
+  int size() {
+    return length;
+  }
+
+  void writeTo(OutputStream out) throws IOException {
+    out.write(buffer, 0, length);
+  }
+
+  byte[] toByteArray() {
+    return Arrays.copyOf(buffer, length);
+  }
+
+  void write(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  void put(char c) {
+    ensureCapacity(1);
+    buffer[length++] = (byte) c;
+  }
+
+  /** Copy text known to be ASCII, such as names and constants */
+  void ascii(String text) {
+    ensureCapacity(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      buffer[length++] = (byte) text.charAt(i);
+    }
+  }
+
+  /** Encode one UTF-16 code unit, or a whole surrogate pair when c is a high surrogate followed by its low half */
+  int utf8(String text, int index) {
+    char c = text.charAt(index);
+    ensureCapacity(4);
+    if (c < 0x80) {
+      buffer[length++] = (byte) c;
+    } else if (c < 0x800) {
+      buffer[length++] = (byte) (0xC0 | (c >> 6));
+      buffer[length++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c) && index + 1 < text.length()
+      && Character.isLowSurrogate(text.charAt(index + 1))) {
+      int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+      buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+      buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+      buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+      return index + 2;
+    } else if (Character.isSurrogate(c)) {
+      buffer[length++] = '?';
+    } else {
+      buffer[length++] = (byte) (0xE0 | (c >> 12));
+      buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buffer[length++] = (byte) (0x80 | (c & 0x3F));
+    }
+    return index + 1;
+  }
+
+  void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      ascii("-9223372036854775808");
+      return;
+    }
+    if (value < 0) {
+      put('-');
+      value = -value;
+    }
+    ensureCapacity(20);
+    int start = length;
+    do {
+      buffer[length++] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+    // Digits were written least significant first
+    for (int i = start, j = length - 1; i < j; i++, j--) {
+      byte swap = buffer[i];
+      buffer[i] = buffer[j];
+      buffer[j] = swap;
+    }
+  }
+
+  /** Write value rounded to a fixed number of decimals (at most 6) */
+  void writeDecimal(double value, int decimals) {
+    writeFixed(Math.round(value * POWERS_OF_TEN[decimals]), decimals);
+  }
+
+  /** Write an integer count of 10^-decimals units as a decimal, e.g. microseconds as seconds with 6 decimals */
+  void writeFixed(long scaled, int decimals) {
+    if (scaled < 0) {
+      put('-');
+      scaled = -scaled;
+    }
+    long unit = POWERS_OF_TEN[decimals];
+    writeLong(scaled / unit);
+    put('.');
+    long fraction = scaled % unit;
+    for (long digit = unit / 10; digit > 0; digit /= 10) {
+      put((char) ('0' + fraction / digit % 10));
+    }
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch of 64-bit key hashes: four rows of counters, where a key's estimate is the smallest of its four
+ * counters. It never undercounts except for lost updates, and overcounts by the traffic of colliding keys.
+ *
+ * <p>
+ * Counters are updated with opaque rather than locked reads and writes: two threads bumping the same counter at once
+ * may count as one, which costs the estimate far less than an atomic read-modify-write on every counter would cost
+ * each request.
+ */
+public class CountMinSketch {
+
+  private static final int DEPTH = 4;
+
+  private final AtomicLongArray counters;
+  private final int width;
+
+  /** Create a sketch with width counters per row, rounded up to a power of two */
+  public CountMinSketch(int width) {
+    this.width = Integer.highestOneBit(Math.max(2, width) * 2 - 1);
+    this.counters = new AtomicLongArray(DEPTH * this.width);
+  }
+
+  /** Count one occurrence of the key and return its new estimate */
+  public long increment(long keyHash) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++) {
+      int index = index(keyHash, row);
+      long count = counters.getOpaque(index) + 1;
+      counters.setOpaque(index, count);
+      estimate = Math.min(estimate, count);
+    }
+    return estimate;
+  }
+
+  public long estimate(long keyHash) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++) {
+      estimate = Math.min(estimate, counters.getOpaque(index(keyHash, row)));
+    }
+    return estimate;
+  }
+
+  /** Halve every counter, so estimates follow recent occurrences */
+  public void halve() {
+    for (int i = 0; i < counters.length(); i++) {
+      counters.setOpaque(i, counters.getOpaque(i) >> 1);
+    }
+  }
+
+  /** Row positions come from the two halves of the hash (Kirsch-Mitzenmacher) */
+  private int index(long keyHash, int row) {
+    int h1 = (int) keyHash;
+    int h2 = (int) (keyHash >>> 32) | 1;
+    return row * width + ((h1 + row * h2) & (width - 1));
+  }
+}
@@ -0,0 +1,49 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed, Prometheus-style bucket bounds that is never reset, so scrapers can compute rates and
+ * quantiles over any range themselves. The windowed percentiles in {@link LatencySnapshot} cover the UI instead.
+ */
+public class CumulativeHistogram {
+
+  private static final long[] UPPER_BOUNDS_MICROS = { 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000,
+      250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000 };
+
+  /** Upper bounds in seconds as exposition labels, the last one being the overflow bucket */
+  static final String[] BUCKET_LABELS = { "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1",
+      "0.25", "0.5", "1.0", "2.5", "5.0", "10.0", "+Inf" };
+
+  private final LongAdder[] counts = new LongAdder[UPPER_BOUNDS_MICROS.length + 1];
+  private final LongAdder sumMicros = new LongAdder();
+
+  public CumulativeHistogram() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  public void record(long micros) {
+    int bucket = 0;
+    while (bucket < UPPER_BOUNDS_MICROS.length && micros > UPPER_BOUNDS_MICROS[bucket]) {
+      bucket++;
+    }
+    counts[bucket].increment();
+    sumMicros.add(Math.max(0, micros));
+  }
+
+  /** Number of buckets including the overflow bucket */
+  public int getBucketCount() {
+    return counts.length;
+  }
+
+  /** Values recorded into one bucket alone, not cumulated */
+  public long getCount(int bucket) {
+    return counts[bucket].sum();
+  }
+
+  public long getSumMicros() {
+    return sumMicros.sum();
+  }
+}
@@ -0,0 +1,144 @@
+package org.example.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Finds the busiest routing keys of one node in constant memory: a count-min sketch estimates how often each key hash
+ * was seen, and a Space-Saving table keeps the k keys with the highest estimates.
+ *
+ * <p>
+ * Recording is four plain increments on the sketch. A key whose estimate reaches the table's admission count is looked
+ * up in the table without locking; only a newcomer takes the lock, and only if it is free, to evict the least frequent
+ * resident. Residents carry no counts of their own: they are re-estimated from the sketch whenever the table is
+ * changed or read. {@link #decay()} halves the sketch so the top keys follow recent traffic rather than all-time
+ * totals.
+ */
+public class HotKeyTracker {
+
+  /** One of the top keys with its estimated (decayed) hit count */
+  public record HotKey(String key, long hits) {
+  }
+
+  private final CountMinSketch sketch = new CountMinSketch(1024);
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicLongArray topHashes;
+  private final String[] topKeys;
+  private int size;
+  /** Estimate a key needs to enter the full table; 1 while it still has room */
+  private volatile long admission = 1;
+
+  public HotKeyTracker(int k) {
+    int capacity = Math.max(1, k);
+    topHashes = new AtomicLongArray(capacity);
+    topKeys = new String[capacity];
+  }
+
+  /** Count one request for the key, whose 64-bit hash is given so it is not computed twice */
+  public void record(long keyHash, String key) {
+    long estimate = sketch.increment(keyHash);
+    if (estimate < admission) {
+      return;
+    }
+    // Unused slots hold 0, which a real key hash practically never is
+    for (int i = 0; i < topHashes.length(); i++) {
+      if (topHashes.get(i) == keyHash) {
+        return;
+      }
+    }
+    if (lock.tryLock()) {
+      try {
+        admit(keyHash, key, estimate);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void admit(long keyHash, String key, long estimate) {
+    int minSlot = -1;
+    long minHits = Long.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      long hash = topHashes.get(i);
+      if (hash == keyHash) {
+        return;
+      }
+      long hits = sketch.estimate(hash);
+      if (hits < minHits) {
+        minHits = hits;
+        minSlot = i;
+      }
+    }
+    int slot;
+    if (size < topKeys.length) {
+      slot = size++;
+      minHits = Math.min(minHits, estimate);
+    } else if (estimate <= minHits) {
+      admission = minHits + 1;
+      return;
+    } else {
+      // Space-Saving: the newcomer takes the slot of the least frequent key
+      slot = minSlot;
+      minHits = Math.min(estimate, secondSmallest(minSlot));
+    }
+    topHashes.set(slot, keyHash);
+    topKeys[slot] = key;
+    admission = size < topKeys.length ? 1 : minHits + 1;
+  }
+
+  /** Smallest estimate among residents other than the one at skip */
+  private long secondSmallest(int skip) {
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      if (i != skip) {
+        min = Math.min(min, sketch.estimate(topHashes.get(i)));
+      }
+    }
+    return min;
+  }
+
+  /** Halve every count, dropping top keys whose estimate falls to zero */
+  public void decay() {
+    sketch.halve();
+    lock.lock();
+    try {
+      int kept = 0;
+      long minHits = Long.MAX_VALUE;
+      for (int i = 0; i < size; i++) {
+        long hash = topHashes.get(i);
+        long hits = sketch.estimate(hash);
+        if (hits > 0) {
+          topHashes.set(kept, hash);
+          topKeys[kept] = topKeys[i];
+          minHits = Math.min(minHits, hits);
+          kept++;
+        }
+      }
+      for (int i = kept; i < size; i++) {
+        topHashes.set(i, 0);
+        topKeys[i] = null;
+      }
+      size = kept;
+      admission = size < topKeys.length ? 1 : minHits + 1;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The top keys, busiest first */
+  public List<HotKey> getTopKeys() {
+    List<HotKey> keys = new ArrayList<>(topKeys.length);
+    lock.lock();
+    try {
+      for (int i = 0; i < size; i++) {
+        keys.add(new HotKey(topKeys[i], sketch.estimate(topHashes.get(i))));
+      }
+    } finally {
+      lock.unlock();
+    }
+    keys.sort((a, b) -> Long.compare(b.hits(), a.hits()));
+    return keys;
+  }
+}
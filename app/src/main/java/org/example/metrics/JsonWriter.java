@@ -0,0 +1,126 @@
+package org.example.metrics;
+
+/**
+ * Streaming JSON encoder that writes UTF-8 straight into a growable byte buffer, with no intermediate Strings. Numbers
+ * are encoded digit by digit; doubles are written with two decimals like the rest of the stats output.
+ *
+ * <p>
+ * Commas are inserted automatically: {@code beginObject().name("a").value(1).name("b").value(true).endObject()}.
+ */
+public class JsonWriter {
+
+  private final ByteOutput out;
+  private boolean needsComma;
+
+  public JsonWriter(int initialCapacity) {
+    this.out = new ByteOutput(initialCapacity);
+  }
+
+  public JsonWriter beginObject() {
+    separate();
+    out.put('{');
+    needsComma = false;
+    return this;
+  }
+
+  public JsonWriter endObject() {
+    out.put('}');
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter beginArray() {
+    separate();
+    out.put('[');
+    needsComma = false;
+    return this;
+  }
+
+  public JsonWriter endArray() {
+    out.put(']');
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter name(String name) {
+    separate();
+    string(name);
+    out.put(':');
+    needsComma = false;
+    return this;
+  }
+
+  public JsonWriter value(long value) {
+    separate();
+    out.writeLong(value);
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter value(boolean value) {
+    separate();
+    out.ascii(value ? "true" : "false");
+    needsComma = true;
+    return this;
+  }
+
+  /** Write a number with two decimals; NaN and infinities, which JSON cannot express, are written as 0 */
+  public JsonWriter value(double value) {
+    separate();
+    out.writeDecimal(Double.isFinite(value) ? value : 0, 2);
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter value(String value) {
+    separate();
+    if (value == null) {
+      out.ascii("null");
+    } else {
+      string(value);
+    }
+    needsComma = true;
+    return this;
+  }
+
+  /** Splice in a value that is already encoded JSON, such as a fragment cached from an earlier document */
+  public JsonWriter rawValue(byte[] encodedJson) {
+    separate();
+    out.write(encodedJson);
+    needsComma = true;
+    return this;
+  }
+
+  /** Copy of the encoded document */
+  public byte[] toByteArray() {
+    return out.toByteArray();
+  }
+
+  private void separate() {
+    if (needsComma) {
+      out.put(',');
+    }
+  }
+
+  private void string(String value) {
+    out.put('"');
+    for (int i = 0; i < value.length();) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.put('\\');
+        out.put(c);
+        i++;
+      } else if (c < 0x20) {
+        out.ascii(c == '\n' ? "\\n" : c == '\r' ? "\\r" : c == '\t' ? "\\t" : "\\u00");
+        if (c != '\n' && c != '\r' && c != '\t') {
+          out.put(Character.forDigit(c >> 4, 16));
+          out.put(Character.forDigit(c & 0xF, 16));
+        }
+        i++;
+      } else {
+        i = out.utf8(value, i);
+      }
+    }
+    out.put('"');
+  }
+}
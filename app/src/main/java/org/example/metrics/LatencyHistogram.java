@@ -0,0 +1,77 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-linear histogram of latencies in microseconds, in the style of HdrHistogram.
+ *
+ * <p>
+ * Values below 128 get a bucket each; above that every power of two is split into 64 linear sub-buckets, so any
+ * recorded value is reported within 1.6% of its true value. Values past about four minutes are clamped into the last
+ * bucket. Recording is a few atomic updates and allocates nothing.
+ */
+class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+  private static final int MAX_MAGNITUDE = 21;
+  static final long MAX_TRACKABLE_MICROS = (1L << (MAX_MAGNITUDE + SUB_BUCKET_BITS)) - 1;
+  private static final int BUCKET_COUNT = (MAX_MAGNITUDE + 2) * SUB_BUCKET_HALF;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong totalCount = new AtomicLong(0);
+  private final AtomicLong maxValue = new AtomicLong(0);
+
+  void record(long micros) {
+    long value = Math.max(0, Math.min(micros, MAX_TRACKABLE_MICROS));
+    counts.incrementAndGet(indexOf(value));
+    totalCount.incrementAndGet();
+    maxValue.accumulateAndGet(value, Math::max);
+  }
+
+  static int indexOf(long value) {
+    int magnitude = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1));
+    return magnitude * SUB_BUCKET_HALF + (int) (value >>> magnitude);
+  }
+
+  /** Largest value that falls into the bucket, so percentiles are never under-reported */
+  static long highestValueAt(int index) {
+    int magnitude = index < 2 * SUB_BUCKET_HALF ? 0 : index / SUB_BUCKET_HALF - 1;
+    long subBucket = index - (long) magnitude * SUB_BUCKET_HALF;
+    return ((subBucket + 1) << magnitude) - 1;
+  }
+
+  void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    totalCount.set(0);
+    maxValue.set(0);
+  }
+
+  /** Compute the reported percentiles in one pass over the buckets */
+  LatencySnapshot toSnapshot() {
+    long total = totalCount.get();
+    if (total == 0) {
+      return LatencySnapshot.EMPTY;
+    }
+
+    double[] quantiles = { 0.50, 0.90, 0.99, 0.999 };
+    long[] values = new long[quantiles.length];
+    int next = 0;
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT && next < quantiles.length; i++) {
+      seen += counts.get(i);
+      while (next < quantiles.length && seen >= (long) Math.ceil(quantiles[next] * total)) {
+        values[next++] = highestValueAt(i);
+      }
+    }
+    long max = maxValue.get();
+    for (int q = next; q < quantiles.length; q++) {
+      values[q] = max;
+    }
+    return new LatencySnapshot(total, Math.min(values[0], max), Math.min(values[1], max), Math.min(values[2], max),
+      Math.min(values[3], max), max);
+  }
+}
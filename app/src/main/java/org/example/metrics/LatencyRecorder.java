@@ -0,0 +1,51 @@
+package org.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records latencies from many threads into one of two histograms and lets a single reader swap them out per interval
+ * without ever blocking a writer (the writer-reader phaser scheme HdrHistogram's Recorder uses).
+ *
+ * <p>
+ * Writers bump a start epoch whose sign selects the active histogram, record, then bump the matching end epoch. The
+ * reader flips the sign and waits until every writer that started in the old phase has finished before reading it.
+ */
+public class LatencyRecorder {
+
+  private final LatencyHistogram[] histograms = { new LatencyHistogram(), new LatencyHistogram() };
+  private final AtomicLong startEpoch = new AtomicLong(0);
+  private final AtomicLong evenEndEpoch = new AtomicLong(0);
+  private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+  public void recordNanos(long nanos) {
+    long critical = startEpoch.getAndIncrement();
+    try {
+      histograms[critical < 0 ? 1 : 0].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    } finally {
+      (critical < 0 ? oddEndEpoch : evenEndEpoch).incrementAndGet();
+    }
+  }
+
+  /** Swap histograms and return the percentiles of everything recorded since the previous call */
+  public synchronized LatencySnapshot sampleInterval() {
+    boolean nextPhaseIsEven = startEpoch.get() < 0;
+    if (nextPhaseIsEven) {
+      evenEndEpoch.set(0);
+    } else {
+      oddEndEpoch.set(Long.MIN_VALUE);
+    }
+    long startAtFlip = startEpoch.getAndSet(nextPhaseIsEven ? 0 : Long.MIN_VALUE);
+
+    // Writers that entered the old phase are at most one histogram update away from done
+    AtomicLong oldEndEpoch = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+    while (oldEndEpoch.get() != startAtFlip) {
+      Thread.onSpinWait();
+    }
+
+    LatencyHistogram inactive = histograms[nextPhaseIsEven ? 1 : 0];
+    LatencySnapshot snapshot = inactive.toSnapshot();
+    inactive.reset();
+    return snapshot;
+  }
+}
@@ -0,0 +1,18 @@
+package org.example.metrics;
+
+/** Immutable percentiles of one sampling window, in microseconds */
+public record LatencySnapshot(long count, long p50, long p90, long p99, long p999, long max) {
+
+  public static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0, 0, 0, 0, 0);
+
+  /** Write the snapshot as a JSON object with millisecond values */
+  public void writeJson(JsonWriter json) {
+    json.beginObject().name("count").value(count);
+    json.name("p50Ms").value(p50 / 1000.0);
+    json.name("p90Ms").value(p90 / 1000.0);
+    json.name("p99Ms").value(p99 / 1000.0);
+    json.name("p999Ms").value(p999 / 1000.0);
+    json.name("maxMs").value(max / 1000.0);
+    json.endObject();
+  }
+}
@@ -0,0 +1,19 @@
+package org.example.metrics;
+
+/** End-to-end, upstream and overhead percentiles of the same sampling window */
+public record LatencyWindow(LatencySnapshot endToEnd, LatencySnapshot upstream, LatencySnapshot overhead) {
+
+  public static final LatencyWindow EMPTY = new LatencyWindow(LatencySnapshot.EMPTY, LatencySnapshot.EMPTY,
+    LatencySnapshot.EMPTY);
+
+  public void writeJson(JsonWriter json) {
+    json.beginObject();
+    json.name("endToEnd");
+    endToEnd.writeJson(json);
+    json.name("upstream");
+    upstream.writeJson(json);
+    json.name("overhead");
+    overhead.writeJson(json);
+    json.endObject();
+  }
+}
@@ -0,0 +1,143 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the OpenMetrics text format straight into a reusable byte buffer. Numbers are encoded digit by digit and
+ * names are copied char by char, so a scrape allocates nothing once the buffer has grown to fit.
+ *
+ * <p>
+ * Samples are built with chained calls, e.g. {@code sample("lb_node_in_flight").label("node", id).value(3)}. The
+ * writer is not thread-safe; callers keep one instance per thread.
+ */
+public class OpenMetricsWriter {
+
+  private final ByteOutput out = new ByteOutput(16 * 1024);
+  private int labelCount;
+
+  /** Discard the previous exposition and keep the buffer */
+  public void reset() {
+    out.reset();
+  }
+
+  public int size() {
+    return out.size();
+  }
+
+  public void writeTo(OutputStream stream) throws IOException {
+    out.writeTo(stream);
+  }
+
+  /** Start a metric family; counter sample names must then carry the _total suffix */
+  public void family(String name, String type, String help) {
+    out.ascii("# TYPE ");
+    out.ascii(name);
+    out.put(' ');
+    out.ascii(type);
+    out.ascii("\n# HELP ");
+    out.ascii(name);
+    out.put(' ');
+    out.ascii(help);
+    out.put('\n');
+  }
+
+  public OpenMetricsWriter sample(String name) {
+    out.ascii(name);
+    labelCount = 0;
+    return this;
+  }
+
+  /** Sample name made of a family name and a suffix such as _total or _bucket */
+  public OpenMetricsWriter sample(String family, String suffix) {
+    out.ascii(family);
+    return sample(suffix);
+  }
+
+  public OpenMetricsWriter label(String name, String value) {
+    out.put(labelCount++ == 0 ? '{' : ',');
+    out.ascii(name);
+    out.ascii("=\"");
+    for (int i = 0; i < value.length();) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        out.put('\\');
+        out.put(c);
+        i++;
+      } else if (c == '\n') {
+        out.ascii("\\n");
+        i++;
+      } else {
+        i = out.utf8(value, i);
+      }
+    }
+    out.put('"');
+    return this;
+  }
+
+  public void value(long value) {
+    endLabels();
+    out.writeLong(value);
+    out.put('\n');
+  }
+
+  public void value(boolean value) {
+    value(value ? 1 : 0);
+  }
+
+  /** Write a value with three decimals, which is plenty for rates and gauges */
+  public void value(double value) {
+    endLabels();
+    if (Double.isNaN(value)) {
+      out.ascii("NaN");
+    } else if (Double.isInfinite(value)) {
+      out.ascii(value > 0 ? "+Inf" : "-Inf");
+    } else {
+      out.writeDecimal(value, 3);
+    }
+    out.put('\n');
+  }
+
+  /** Write an integer count of millionths, e.g. microseconds as seconds */
+  public void micros(long micros) {
+    endLabels();
+    out.writeFixed(micros, 6);
+    out.put('\n');
+  }
+
+  /** Write the _bucket, _count and _sum samples of a histogram whose values are seconds */
+  public void histogram(String family, String labelName, String labelValue, String kindName, String kindValue,
+    CumulativeHistogram histogram) {
+    long cumulative = 0;
+    for (int i = 0; i < histogram.getBucketCount(); i++) {
+      cumulative += histogram.getCount(i);
+      sample(family, "_bucket");
+      if (labelName != null) {
+        label(labelName, labelValue);
+      }
+      label(kindName, kindValue).label("le", CumulativeHistogram.BUCKET_LABELS[i]).value(cumulative);
+    }
+    sample(family, "_count");
+    if (labelName != null) {
+      label(labelName, labelValue);
+    }
+    label(kindName, kindValue).value(cumulative);
+    sample(family, "_sum");
+    if (labelName != null) {
+      label(labelName, labelValue);
+    }
+    label(kindName, kindValue).micros(histogram.getSumMicros());
+  }
+
+  /** Terminate the exposition as OpenMetrics requires */
+  public void eof() {
+    out.ascii("# EOF\n");
+  }
+
+  private void endLabels() {
+    if (labelCount > 0) {
+      out.put('}');
+    }
+    out.put(' ');
+  }
+}
@@ -0,0 +1,87 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window event rate over the last minute, kept as a ring of per-second buckets, so no background thread has
+ * to diff counters.
+ *
+ * <p>
+ * The current second counts into a LongAdder, so concurrent requests do not contend on one word. The first increment
+ * or read that sees a new second wins a CAS on the second and folds the adder into that second's bucket. Each bucket
+ * packs the epoch second it belongs to (high 32 bits) with its count (low 32 bits) in one long, so a bucket can never
+ * mix counts from two different seconds. An increment made near a second boundary can be counted in the neighbouring
+ * second, so per-second counts may be off by one second at the edges, but no increment is lost. Reads only look at
+ * completed seconds, so rates do not dip while the current second fills.
+ */
+public class RateCounter {
+
+  private static final int BUCKETS = 64;
+  private static final int MAX_WINDOW_SECONDS = 60;
+  private static final double EWMA_TIME_CONSTANT_SECONDS = 10;
+  private static final double EWMA_ALPHA = 1 - Math.exp(-1 / EWMA_TIME_CONSTANT_SECONDS);
+  private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder pending = new LongAdder();
+  private final AtomicLong pendingSecond = new AtomicLong(currentSecond());
+
+  public void increment() {
+    roll(currentSecond());
+    pending.increment();
+  }
+
+  /** Fold the pending count into its bucket once its second has passed */
+  private void roll(long now) {
+    long second = pendingSecond.get();
+    if (second != now && pendingSecond.compareAndSet(second, now)) {
+      long count = Math.min(pending.sumThenReset(), COUNT_MASK);
+      buckets.set((int) (second & (BUCKETS - 1)), (second & COUNT_MASK) << 32 | count);
+    }
+  }
+
+  /** Events counted in the last windowSeconds completed seconds (at most 60) */
+  public long getCount(int windowSeconds) {
+    int window = Math.max(1, Math.min(windowSeconds, MAX_WINDOW_SECONDS));
+    long now = currentSecond();
+    roll(now);
+    long total = 0;
+    for (long second = now - window; second < now; second++) {
+      total += countAt(second);
+    }
+    return total;
+  }
+
+  /** Average events per second over the last windowSeconds completed seconds (at most 60) */
+  public double getRate(int windowSeconds) {
+    int window = Math.max(1, Math.min(windowSeconds, MAX_WINDOW_SECONDS));
+    return getCount(window) / (double) window;
+  }
+
+  /** Exponentially weighted rate with a 10 second time constant, folded over the last minute on each read */
+  public double getEwmaRate() {
+    long now = currentSecond();
+    roll(now);
+    double ewma = countAt(now - MAX_WINDOW_SECONDS);
+    for (long second = now - MAX_WINDOW_SECONDS + 1; second < now; second++) {
+      ewma += (countAt(second) - ewma) * EWMA_ALPHA;
+    }
+    return ewma;
+  }
+
+  private long countAt(long second) {
+    long value = buckets.get((int) (second & (BUCKETS - 1)));
+    return (value >>> 32) == (second & COUNT_MASK) ? value & COUNT_MASK : 0;
+  }
+
+  private static long currentSecond() {
+    return System.currentTimeMillis() / 1000;
+  }
+
+  /** Read the 1s, 10s and 60s rates and the EWMA together */
+  public RateSnapshot snapshot() {
+    return new RateSnapshot(getRate(1), getRate(10), getRate(60), getEwmaRate());
+  }
+}
@@ -0,0 +1,14 @@
+package org.example.metrics;
+
+/** Request rates read from a {@link RateCounter} at one instant, in events per second */
+public record RateSnapshot(double oneSecond, double tenSeconds, double sixtySeconds, double ewma) {
+
+  public void writeJson(JsonWriter json) {
+    json.beginObject();
+    json.name("1s").value(oneSecond);
+    json.name("10s").value(tenSeconds);
+    json.name("60s").value(sixtySeconds);
+    json.name("ewma").value(ewma);
+    json.endObject();
+  }
+}
@@ -0,0 +1,57 @@
+package org.example.metrics;
+
+/**
+ * End-to-end, upstream and load balancer overhead latency for one scope (a node or the whole load balancer). Writers
+ * record into lock-free recorders; {@link #sample()} swaps them once per window and publishes immutable snapshots.
+ */
+public class RequestLatency {
+
+  private final LatencyRecorder endToEnd = new LatencyRecorder();
+  private final LatencyRecorder upstream = new LatencyRecorder();
+  private final LatencyRecorder overhead = new LatencyRecorder();
+  private volatile LatencyWindow window = LatencyWindow.EMPTY;
+  private final CumulativeHistogram endToEndTotals = new CumulativeHistogram();
+  private final CumulativeHistogram upstreamTotals = new CumulativeHistogram();
+  private final CumulativeHistogram overheadTotals = new CumulativeHistogram();
+
+  /** Time from the request arriving to the response being written */
+  public void recordEndToEnd(long nanos) {
+    endToEnd.recordNanos(nanos);
+    endToEndTotals.record(nanos / 1000);
+  }
+
+  /** Time spent waiting on one backend call */
+  public void recordUpstream(long nanos) {
+    upstream.recordNanos(nanos);
+    upstreamTotals.record(nanos / 1000);
+  }
+
+  /** Time the load balancer itself added: routing, buffering and copying */
+  public void recordOverhead(long nanos) {
+    overhead.recordNanos(nanos);
+    overheadTotals.record(nanos / 1000);
+  }
+
+  /** Close the current window; called from a single scheduler thread */
+  public void sample() {
+    window = new LatencyWindow(endToEnd.sampleInterval(), upstream.sampleInterval(), overhead.sampleInterval());
+  }
+
+  /** Percentiles of the last closed window */
+  public LatencyWindow getWindow() {
+    return window;
+  }
+
+  /** Everything recorded since startup, for scrapers */
+  public CumulativeHistogram getEndToEndTotals() {
+    return endToEndTotals;
+  }
+
+  public CumulativeHistogram getUpstreamTotals() {
+    return upstreamTotals;
+  }
+
+  public CumulativeHistogram getOverheadTotals() {
+    return overheadTotals;
+  }
+}
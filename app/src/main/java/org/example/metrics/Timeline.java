@@ -0,0 +1,238 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Round-robin time series of the request rate and server count, in the style of RRDtool.
+ *
+ * <p>
+ * One sample per second is consolidated into three archives: 1s slots for an hour, 1m slots for a day and 1h slots for
+ * a month. Each archive is a fixed ring of parallel primitive arrays indexed by slot time, so recording overwrites the
+ * oldest slot in place and never allocates. Each slot keeps the sum and count of its samples (for the average rate),
+ * the peak rate and the peak server count. When a file is given, every slot write also goes to a memory-mapped copy
+ * of the archives, which is loaded back on startup.
+ */
+public class Timeline {
+
+  private static final Logger LOGGER = Logger.getLogger(Timeline.class.getName());
+
+  private static final int MAGIC = 0x544C4E31; // "TLN1"
+  private static final int HEADER_BYTES = 16;
+  private static final int SLOT_BYTES = 32;
+
+  /** Consolidated points from one archive, in parallel arrays ordered by time */
+  public record Series(int stepSeconds, long[] timestamps, double[] requestsPerSecond, double[] peakRequestsPerSecond,
+    int[] serverCount) {
+
+    /** Write the points as a JSON array of objects */
+    public void writePoints(JsonWriter json) {
+      json.beginArray();
+      for (int i = 0; i < timestamps.length; i++) {
+        json.beginObject();
+        json.name("timestamp").value(timestamps[i]);
+        json.name("requestsPerSecond").value(requestsPerSecond[i]);
+        json.name("peakRequestsPerSecond").value(peakRequestsPerSecond[i]);
+        json.name("serverCount").value(serverCount[i]);
+        json.endObject();
+      }
+      json.endArray();
+    }
+  }
+
+  /** One resolution: a ring of capacity slots, each stepSeconds wide */
+  private static final class Archive {
+    final int stepSeconds;
+    final int capacity;
+    final int fileOffset;
+    final long[] slotTimes;
+    final double[] rateSums;
+    final double[] peakRates;
+    final int[] peakServers;
+    final int[] samples;
+
+    Archive(int stepSeconds, int capacity, int fileOffset) {
+      this.stepSeconds = stepSeconds;
+      this.capacity = capacity;
+      this.fileOffset = fileOffset;
+      this.slotTimes = new long[capacity];
+      this.rateSums = new double[capacity];
+      this.peakRates = new double[capacity];
+      this.peakServers = new int[capacity];
+      this.samples = new int[capacity];
+    }
+
+    int indexOf(long slotTime) {
+      return (int) Math.floorMod(slotTime / stepSeconds, (long) capacity);
+    }
+
+    long retentionSeconds() {
+      return (long) stepSeconds * capacity;
+    }
+  }
+
+  private final Archive[] archives;
+  private final MappedByteBuffer file;
+  private long lastSecond;
+
+  /** Create an in-memory timeline, persisted to filePath unless it is null or empty */
+  public Timeline(String filePath) {
+    int[][] layout = { { 1, 3600 }, { 60, 1440 }, { 3600, 720 } };
+    archives = new Archive[layout.length];
+    int offset = HEADER_BYTES;
+    for (int i = 0; i < layout.length; i++) {
+      archives[i] = new Archive(layout[i][0], layout[i][1], offset);
+      offset += layout[i][1] * SLOT_BYTES;
+    }
+    file = filePath == null || filePath.isEmpty() ? null : map(Path.of(filePath), offset);
+  }
+
+  private MappedByteBuffer map(Path path, int size) {
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+        boolean existing = channel.size() == size;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (existing && buffer.getInt(0) == MAGIC && buffer.getInt(4) == archives.length) {
+          load(buffer);
+          LOGGER.log(Level.INFO, "Loaded timeline from {0}", path);
+        } else {
+          buffer.putInt(0, MAGIC);
+          buffer.putInt(4, archives.length);
+          for (Archive archive : archives) {
+            for (int i = 0; i < archive.capacity; i++) {
+              writeSlot(buffer, archive, i);
+            }
+          }
+        }
+        return buffer;
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Timeline file {0} unavailable, keeping the timeline in memory only: {1}",
+        new Object[] { path, e.getMessage() });
+      return null;
+    }
+  }
+
+  private void load(MappedByteBuffer buffer) {
+    lastSecond = buffer.getLong(8);
+    for (Archive archive : archives) {
+      for (int i = 0; i < archive.capacity; i++) {
+        int position = archive.fileOffset + i * SLOT_BYTES;
+        archive.slotTimes[i] = buffer.getLong(position);
+        archive.rateSums[i] = buffer.getDouble(position + 8);
+        archive.peakRates[i] = buffer.getDouble(position + 16);
+        archive.peakServers[i] = buffer.getInt(position + 24);
+        archive.samples[i] = buffer.getInt(position + 28);
+      }
+    }
+  }
+
+  private static void writeSlot(MappedByteBuffer buffer, Archive archive, int index) {
+    int position = archive.fileOffset + index * SLOT_BYTES;
+    buffer.putLong(position, archive.slotTimes[index]);
+    buffer.putDouble(position + 8, archive.rateSums[index]);
+    buffer.putDouble(position + 16, archive.peakRates[index]);
+    buffer.putInt(position + 24, archive.peakServers[index]);
+    buffer.putInt(position + 28, archive.samples[index]);
+  }
+
+  /** Record the rate seen during one second; seconds at or before the last recorded one are ignored */
+  public synchronized void record(long epochSecond, double requestsPerSecond, int serverCount) {
+    if (epochSecond <= lastSecond) {
+      return;
+    }
+    lastSecond = epochSecond;
+    for (Archive archive : archives) {
+      long slotTime = epochSecond - Math.floorMod(epochSecond, archive.stepSeconds);
+      int index = archive.indexOf(slotTime);
+      if (archive.slotTimes[index] != slotTime) {
+        // The slot still holds data from one lap ago; start it over
+        archive.slotTimes[index] = slotTime;
+        archive.rateSums[index] = 0;
+        archive.peakRates[index] = 0;
+        archive.peakServers[index] = 0;
+        archive.samples[index] = 0;
+      }
+      archive.rateSums[index] += requestsPerSecond;
+      archive.peakRates[index] = Math.max(archive.peakRates[index], requestsPerSecond);
+      archive.peakServers[index] = Math.max(archive.peakServers[index], serverCount);
+      archive.samples[index]++;
+      if (file != null) {
+        writeSlot(file, archive, index);
+      }
+    }
+    if (file != null) {
+      file.putLong(8, lastSecond);
+    }
+  }
+
+  /**
+   * Points between from and to (epoch seconds, inclusive) at roughly stepSeconds resolution. The finest archive that
+   * still covers from is used, and its slots are merged further when the requested step is coarser.
+   */
+  public synchronized Series query(long from, long to, int stepSeconds) {
+    long now = lastSecond;
+    to = Math.min(to, now);
+    Archive source = archives[archives.length - 1];
+    for (Archive archive : archives) {
+      if (now - from < archive.retentionSeconds()) {
+        source = archive;
+        break;
+      }
+    }
+    // Nothing older than the coarsest archive's retention survives, so do not walk slots before it
+    from = Math.max(from, now - source.retentionSeconds() + source.stepSeconds);
+    int step = Math.max(source.stepSeconds, stepSeconds - stepSeconds % source.stepSeconds);
+    long first = from - Math.floorMod(from, step);
+    int buckets = to < first ? 0 : (int) ((to - first) / step + 1);
+
+    long[] timestamps = new long[buckets];
+    double[] rates = new double[buckets];
+    double[] peakRates = new double[buckets];
+    int[] peakServers = new int[buckets];
+    int[] samples = new int[buckets];
+    for (long slotTime = first; slotTime <= to; slotTime += source.stepSeconds) {
+      int index = source.indexOf(slotTime);
+      if (source.slotTimes[index] != slotTime || source.samples[index] == 0) {
+        continue;
+      }
+      int bucket = (int) ((slotTime - first) / step);
+      rates[bucket] += source.rateSums[index];
+      peakRates[bucket] = Math.max(peakRates[bucket], source.peakRates[index]);
+      peakServers[bucket] = Math.max(peakServers[bucket], source.peakServers[index]);
+      samples[bucket] += source.samples[index];
+    }
+
+    // Keep only buckets that saw samples; gaps stay gaps rather than zeros
+    int count = 0;
+    for (int i = 0; i < buckets; i++) {
+      if (samples[i] > 0) {
+        timestamps[count] = first + (long) i * step;
+        rates[count] = rates[i] / samples[i];
+        peakRates[count] = peakRates[i];
+        peakServers[count] = peakServers[i];
+        count++;
+      }
+    }
+    return new Series(step, Arrays.copyOf(timestamps, count), Arrays.copyOf(rates, count),
+      Arrays.copyOf(peakRates, count), Arrays.copyOf(peakServers, count));
+  }
+
+  /** Flush the memory-mapped copy to disk */
+  public synchronized void flush() {
+    if (file != null) {
+      file.force();
+    }
+  }
+}
@@ -1,101 +1,386 @@
 package org.example.ring;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.example.common.Node;
+import org.example.diagnostics.RingLookupEvent;
+import org.example.diagnostics.RingRebuildEvent;
 import org.example.util.MurmurHash;
 
-/** Consistent Hash Ring implementation with virtual nodes */
+/**
+ * Consistent Hash Ring implementation with virtual nodes.
+ *
+ * <p>
+ * Membership changes are serialized and each one publishes a new immutable snapshot of the ring as parallel sorted
+ * arrays, so lookups never take a lock. A node may own only a prefix of its virtual nodes, which lets its share of
+ * the keyspace be ramped up in steps; raising the count only moves keys onto that node.
+ *
+ * <p>
+ * Optionally, a sample of lookups is counted per ring position, so the load of each arc can be compared with the
+ * share of the keyspace it covers. A virtual node can be lent to another node, which then owns that arc while both
+ * nodes stay on the ring; this moves real traffic between nodes without rehashing anything else.
+ */
 public class ConsistentHashRing {
   private static final Logger LOGGER = Logger.getLogger(ConsistentHashRing.class.getName());
 
-  private final TreeMap<Long, Node> ring;
-  private final Map<String, List<Long>> nodeHashes;
+  /**
+   * Immutable ring positions: hashes[i] is owned by owners[i], sorted by hash. The position is virtual node
+   * indexes[i] of origins[i], which differs from the owner when the virtual node was moved. hits counts sampled
+   * lookups per position, or is null when sampling is off.
+   */
+  private static final class Snapshot {
+    final long[] hashes;
+    final Node[] owners;
+    final Node[] origins;
+    final int[] indexes;
+    final AtomicLongArray hits;
+    final int nodeCount;
+
+    Snapshot(long[] hashes, Node[] owners, Node[] origins, int[] indexes, AtomicLongArray hits, int nodeCount) {
+      this.hashes = hashes;
+      this.owners = owners;
+      this.origins = origins;
+      this.indexes = indexes;
+      this.hits = hits;
+      this.nodeCount = nodeCount;
+    }
+  }
+
+  /**
+   * Load of one ring position: virtual node index of node, currently owned by owner, with its estimated lookups and
+   * the fraction of the keyspace its arc covers
+   */
+  public record ArcLoad(String node, int index, String owner, long hits, double keyspaceShare) {
+  }
+
+  private final Map<String, Node> nodes;
+  private final Map<String, long[]> nodeHashes;
+  private final Map<String, Integer> activeVirtualNodes;
+  /** Virtual nodes lent to another node, keyed by "node#index" and mapping to the borrowing node's id */
+  private final Map<String, String> movedVirtualNodes = new HashMap<>();
   private final int virtualNodes;
+  private volatile int hitSampleEvery;
+  private volatile Snapshot snapshot = new Snapshot(new long[0], new Node[0], new Node[0], new int[0], null, 0);
+  private volatile Predicate<Node> routingFilter = Node::isActive;
 
   public ConsistentHashRing(int virtualNodes) {
-    this.ring = new TreeMap<>();
+    this.nodes = new LinkedHashMap<>();
     this.nodeHashes = new HashMap<>();
+    this.activeVirtualNodes = new HashMap<>();
     this.virtualNodes = virtualNodes;
   }
 
+  /**
+   * Decide which nodes may receive traffic. Nodes rejected by the filter keep their ring positions; lookups just walk
+   * past them, so eligibility can change per request without rebuilding the ring.
+   */
+  public void setRoutingFilter(Predicate<Node> routingFilter) {
+    this.routingFilter = routingFilter;
+  }
+
+  /**
+   * Count one in every sampleEvery lookups against the ring position that owns the key (0 turns counting off). Counts
+   * are kept per position across rebuilds.
+   */
+  public synchronized void setHitSampling(int sampleEvery) {
+    hitSampleEvery = Math.max(0, sampleEvery);
+    publish();
+  }
+
   /** Add a node to the ring */
-  public synchronized void addNode(Node node) {
+  public void addNode(Node node) {
+    addNode(node, virtualNodes);
+  }
+
+  /** Add a node to the ring owning only its first activeCount virtual nodes */
+  public synchronized void addNode(Node node, int activeCount) {
     if (nodeHashes.containsKey(node.getId())) {
       LOGGER.log(Level.WARNING, "Node {0} already exists in the ring", node.getId());
       return;
     }
 
-    List<Long> hashes = new ArrayList<>();
+    long[] hashes = new long[virtualNodes];
     for (int i = 0; i < virtualNodes; i++) {
       String virtualNodeKey = node.getId() + "#" + i;
-      long hash = hash(virtualNodeKey);
-      ring.put(hash, node);
-      hashes.add(hash);
+      hashes[i] = hash(virtualNodeKey);
     }
 
+    nodes.put(node.getId(), node);
     nodeHashes.put(node.getId(), hashes);
+    activeVirtualNodes.put(node.getId(), clampVirtualNodes(activeCount));
+    publish();
     LOGGER.log(Level.INFO, "Added node {0} with {1} virtual nodes (total: {2} nodes)",
-      new Object[] { node.getId(), virtualNodes, nodeHashes.size() });
+      new Object[] { node.getId(), activeVirtualNodes.get(node.getId()), nodeHashes.size() });
+  }
+
+  /** Change how many of a node's virtual nodes are on the ring, returning false if the node is unknown */
+  public synchronized boolean setActiveVirtualNodes(String nodeId, int activeCount) {
+    if (!nodeHashes.containsKey(nodeId)) {
+      return false;
+    }
+    int clamped = clampVirtualNodes(activeCount);
+    if (activeVirtualNodes.put(nodeId, clamped) != clamped) {
+      publish();
+    }
+    return true;
+  }
+
+  /** Number of a node's virtual nodes currently on the ring, or 0 if the node is unknown */
+  public synchronized int getActiveVirtualNodes(String nodeId) {
+    return activeVirtualNodes.getOrDefault(nodeId, 0);
   }
 
   /** Remove a node from the ring */
   public synchronized void removeNode(String nodeId) {
-    List<Long> hashes = nodeHashes.get(nodeId);
-    if (hashes == null) {
+    if (!nodeHashes.containsKey(nodeId)) {
       LOGGER.log(Level.WARNING, "Node {0} not found in the ring", nodeId);
       return;
     }
 
-    for (Long hash : hashes) {
-      ring.remove(hash);
-    }
-
+    nodes.remove(nodeId);
     nodeHashes.remove(nodeId);
+    activeVirtualNodes.remove(nodeId);
+    // Virtual nodes it lent out leave with it, and those it borrowed go back to their own nodes
+    movedVirtualNodes.entrySet().removeIf(e -> e.getKey().startsWith(nodeId + "#") || e.getValue().equals(nodeId));
+    publish();
     LOGGER.log(Level.INFO, "Removed node {0} (total: {1} nodes)", new Object[] { nodeId, nodeHashes.size() });
   }
 
-  /** Get the node responsible for the given key, skipping inactive nodes */
-  public synchronized Node getNode(String key) {
-    if (ring.isEmpty()) {
-      return null;
+  /**
+   * Hand virtual node index of nodeId to toNodeId, or give it back when toNodeId is nodeId itself. Returns false if
+   * either node is unknown or the index is out of range.
+   */
+  public synchronized boolean moveVirtualNode(String nodeId, int index, String toNodeId) {
+    if (!nodeHashes.containsKey(nodeId) || !nodeHashes.containsKey(toNodeId) || index < 0 || index >= virtualNodes) {
+      return false;
+    }
+    String key = nodeId + "#" + index;
+    String previous = nodeId.equals(toNodeId) ? movedVirtualNodes.remove(key) : movedVirtualNodes.put(key, toNodeId);
+    if (!toNodeId.equals(previous == null ? nodeId : previous)) {
+      publish();
+      LOGGER.log(Level.INFO, "Moved virtual node {0} to {1}", new Object[] { key, toNodeId });
     }
+    return true;
+  }
 
-    long hash = hash(key);
-    Map.Entry<Long, Node> entry = ring.ceilingEntry(hash);
+  private int clampVirtualNodes(int count) {
+    return Math.max(1, Math.min(virtualNodes, count));
+  }
 
-    if (entry == null) {
-      entry = ring.firstEntry();
+  /** Rebuild the sorted position arrays from the active virtual nodes and swap them in */
+  private void publish() {
+    RingRebuildEvent event = new RingRebuildEvent();
+    event.begin();
+    int total = 0;
+    for (int count : activeVirtualNodes.values()) {
+      total += count;
     }
 
-    // If the first node is inactive, find the next active node
-    Node node = entry.getValue();
-    if (!node.isActive()) {
-      // Try to find an active node by iterating forward
-      for (Map.Entry<Long, Node> e : ring.tailMap(entry.getKey()).entrySet()) {
-        if (e.getValue().isActive()) {
-          return e.getValue();
-        }
+    // Sort positions by hash through an index permutation so owners stay paired with their hashes
+    long[] unsortedHashes = new long[total];
+    Node[] unsortedOwners = new Node[total];
+    Node[] unsortedOrigins = new Node[total];
+    int[] unsortedIndexes = new int[total];
+    int position = 0;
+    for (Map.Entry<String, Node> entry : nodes.entrySet()) {
+      long[] hashes = nodeHashes.get(entry.getKey());
+      int count = activeVirtualNodes.get(entry.getKey());
+      for (int i = 0; i < count; i++) {
+        String borrower = movedVirtualNodes.isEmpty() ? null : movedVirtualNodes.get(entry.getKey() + "#" + i);
+        unsortedHashes[position] = hashes[i];
+        unsortedOwners[position] = borrower != null ? nodes.get(borrower) : entry.getValue();
+        unsortedOrigins[position] = entry.getValue();
+        unsortedIndexes[position] = i;
+        position++;
       }
-      // If no active node found forward, wrap around and search from the beginning
-      for (Map.Entry<Long, Node> e : ring.headMap(entry.getKey()).entrySet()) {
-        if (e.getValue().isActive()) {
-          return e.getValue();
+    }
+    Integer[] order = new Integer[total];
+    for (int i = 0; i < total; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(unsortedHashes[a], unsortedHashes[b]));
+
+    long[] sortedHashes = new long[total];
+    Node[] sortedOwners = new Node[total];
+    Node[] sortedOrigins = new Node[total];
+    int[] sortedIndexes = new int[total];
+    for (int i = 0; i < total; i++) {
+      sortedHashes[i] = unsortedHashes[order[i]];
+      sortedOwners[i] = unsortedOwners[order[i]];
+      sortedOrigins[i] = unsortedOrigins[order[i]];
+      sortedIndexes[i] = unsortedIndexes[order[i]];
+    }
+
+    // Positions keep their hashes across rebuilds, so counts carry over by looking each one up in the old ring
+    AtomicLongArray hits = null;
+    if (hitSampleEvery > 0) {
+      Snapshot previous = snapshot;
+      hits = new AtomicLongArray(total);
+      for (int i = 0; previous.hits != null && i < total; i++) {
+        int old = Arrays.binarySearch(previous.hashes, sortedHashes[i]);
+        if (old >= 0) {
+          hits.set(i, previous.hits.get(old));
         }
       }
-      // If still no active node found, return null
+    }
+    snapshot = new Snapshot(sortedHashes, sortedOwners, sortedOrigins, sortedIndexes, hits, nodes.size());
+
+    if (event.shouldCommit()) {
+      event.nodes = nodes.size();
+      event.positions = total;
+      event.commit();
+    }
+  }
+
+  /** Get the node responsible for the given key, skipping inactive nodes */
+  public Node getNode(String key) {
+    return getNodeForHash(hash(key));
+  }
+
+  /**
+   * Get the node that owns the key's position, ignoring the routing filter and hit sampling, so the answer only changes
+   * with ring membership. Null when the ring is empty.
+   */
+  public Node getOwner(String key) {
+    Snapshot ring = snapshot;
+    return ring.hashes.length == 0 ? null : ring.owners[ceilingIndex(ring, hash(key))];
+  }
+
+  /** Get the node responsible for an already hashed key, skipping nodes rejected by the routing filter */
+  public Node getNodeForHash(long hash) {
+    Snapshot ring = snapshot;
+    int size = ring.hashes.length;
+    if (size == 0) {
       return null;
     }
 
-    return node;
+    RingLookupEvent event = new RingLookupEvent();
+    event.begin();
+    int start = ceilingIndex(ring, hash);
+    countHit(ring, start);
+
+    // If the first node is not routable, walk clockwise (wrapping around) to the next routable node
+    Predicate<Node> filter = routingFilter;
+    Node node = ring.owners[start];
+    Node chosen = null;
+    int step = 0;
+    if (filter.test(node)) {
+      chosen = node;
+    } else {
+      for (step = 1; step < size; step++) {
+        Node candidate = ring.owners[(start + step) % size];
+        if (candidate != node && filter.test(candidate)) {
+          chosen = candidate;
+          break;
+        }
+      }
+    }
+    commitLookup(event, hash, chosen, step);
+    // Null if no routable node was found
+    return chosen;
+  }
+
+  private static void commitLookup(RingLookupEvent event, long hash, Node chosen, int skipped) {
+    if (event.shouldCommit()) {
+      event.keyHash = hash;
+      event.node = chosen != null ? chosen.getId() : null;
+      event.skipped = skipped;
+      event.commit();
+    }
+  }
+
+  /**
+   * Get up to count distinct routable nodes for the key in ring order: the owner first, then the next distinct nodes
+   * clockwise. These are the replicas used for failover and hedging.
+   */
+  public List<Node> getNodes(String key, int count) {
+    return getNodesForHash(hash(key), count);
+  }
+
+  /** Like {@link #getNodes(String, int)} for an already hashed key */
+  public List<Node> getNodesForHash(long hash, int count) {
+    Snapshot ring = snapshot;
+    int size = ring.hashes.length;
+    List<Node> replicas = new ArrayList<>(count);
+    if (size == 0) {
+      return replicas;
+    }
+
+    RingLookupEvent event = new RingLookupEvent();
+    event.begin();
+    Predicate<Node> filter = routingFilter;
+    List<Node> seen = new ArrayList<>();
+    int start = ceilingIndex(ring, hash);
+    countHit(ring, start);
+    for (int step = 0; step < size && replicas.size() < count && seen.size() < ring.nodeCount; step++) {
+      Node node = ring.owners[(start + step) % size];
+      // Each physical node is considered once, so a rejected node is not asked again at its later positions
+      if (!seen.contains(node)) {
+        seen.add(node);
+        if (filter.test(node)) {
+          replicas.add(node);
+        }
+      }
+    }
+    commitLookup(event, hash, replicas.isEmpty() ? null : replicas.get(0), seen.size() - replicas.size());
+    return replicas;
+  }
+
+  /** Count a sampled lookup against the position, weighted by the sampling rate so counts estimate all lookups */
+  private void countHit(Snapshot ring, int position) {
+    int every = hitSampleEvery;
+    if (every > 0 && ring.hits != null && ThreadLocalRandom.current().nextInt(every) == 0) {
+      ring.hits.getAndAdd(position, every);
+    }
+  }
+
+  /** Halve every position's count, so the counts follow recent traffic */
+  public void decayHits() {
+    AtomicLongArray hits = snapshot.hits;
+    for (int i = 0; hits != null && i < hits.length(); i++) {
+      hits.getAndUpdate(i, count -> count >> 1);
+    }
+  }
+
+  /** Load of every ring position in ring order; hits are all 0 while sampling is off */
+  public List<ArcLoad> getArcLoads() {
+    Snapshot ring = snapshot;
+    int size = ring.hashes.length;
+    List<ArcLoad> arcs = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      // An arc runs from the previous position (exclusive) to this one; the unsigned difference handles the wrap
+      long width = ring.hashes[i] - ring.hashes[(i + size - 1) % size];
+      double share = size == 1 ? 1 : ((width >>> 1) * 2.0 + (width & 1)) / 0x1p64;
+      arcs.add(new ArcLoad(ring.origins[i].getId(), ring.indexes[i], ring.owners[i].getId(),
+        ring.hits != null ? ring.hits.get(i) : 0, share));
+    }
+    return arcs;
+  }
+
+  /** Sampling rate of the per-position counts, or 0 when they are off */
+  public int getHitSampleEvery() {
+    return hitSampleEvery;
+  }
+
+  /** Index of the first position at or after the hash, wrapping to 0 past the end */
+  private static int ceilingIndex(Snapshot ring, long hash) {
+    int index = Arrays.binarySearch(ring.hashes, hash);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return index == ring.hashes.length ? 0 : index;
   }
 
   /**
@@ -108,7 +393,7 @@ public class ConsistentHashRing {
 
   /** Get all nodes in the ring */
   public synchronized Set<Node> getAllNodes() {
-    return new HashSet<>(ring.values());
+    return new HashSet<>(nodes.values());
   }
 
   /** Get the number of physical nodes */
@@ -116,20 +401,30 @@ public class ConsistentHashRing {
     return nodeHashes.size();
   }
 
+  /** Get the number of positions currently on the ring */
+  public int getPositionCount() {
+    return snapshot.hashes.length;
+  }
+
   /** Get ring statistics for debugging */
   public synchronized String getStats() {
     StringBuilder sb = new StringBuilder();
     sb.append("\n=== Consistent Hash Ring Stats ===\n");
     sb.append("Physical Nodes: ").append(nodeHashes.size()).append("\n");
     sb.append("Virtual Nodes per Physical Node: ").append(virtualNodes).append("\n");
-    sb.append("Total Positions in Ring: ").append(ring.size()).append("\n");
+    sb.append("Total Positions in Ring: ").append(snapshot.hashes.length).append("\n");
     sb.append("Active Nodes:\n");
 
-    for (String nodeId : nodeHashes.keySet()) {
-      Node node = ring.values().stream().filter(n -> n.getId().equals(nodeId)).findFirst().orElse(null);
-      if (node != null) {
-        sb.append("  - ").append(node).append("\n");
+    for (Node node : nodes.values()) {
+      sb.append("  - ").append(node);
+      int active = activeVirtualNodes.get(node.getId());
+      if (active < virtualNodes) {
+        sb.append(" (").append(active).append("/").append(virtualNodes).append(" virtual nodes)");
       }
+      sb.append("\n");
+    }
+    if (!movedVirtualNodes.isEmpty()) {
+      sb.append("Moved Virtual Nodes: ").append(movedVirtualNodes).append("\n");
     }
     sb.append("==================================\n");
 
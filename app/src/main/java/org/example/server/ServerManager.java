@@ -2,14 +2,23 @@ package org.example.server;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,18 +33,52 @@ public class ServerManager {
   private final ServerConfig config;
   private final Map<String, Process> serverProcesses;
   private final Map<String, Node> nodes;
-  private int nextPort;
+  private final Collection<Node> nodesView;
+  private final AtomicInteger nextPort;
+  /** Ready, warmed servers outside the ring; demoted servers go to the front so the warmest is promoted first */
+  private final Deque<Launched> standby = new ConcurrentLinkedDeque<>();
+  private final ExecutorService standbyExecutor = Executors.newSingleThreadExecutor();
+  private volatile boolean shuttingDown;
+
+  /** A ready backend process and the node it answers as */
+  private record Launched(Node node, Process process) {
+  }
+
+  /** A server listed by {@link #startServer()}, and whether it came warm from the standby pool */
+  public record Started(Node node, boolean fromStandby) {
+  }
 
   public ServerManager(ServerConfig config) {
     this.config = config;
     this.serverProcesses = new ConcurrentHashMap<>();
     this.nodes = new ConcurrentHashMap<>();
-    this.nextPort = config.getStartingPort();
+    this.nodesView = Collections.unmodifiableCollection(nodes.values());
+    this.nextPort = new AtomicInteger(config.getStartingPort());
+  }
+
+  /**
+   * Start a new server instance, or promote a warm standby if one is waiting. A launched server is only listed once
+   * its /health endpoint answers, so it never receives traffic before it listens. Safe to call from several threads at
+   * once.
+   *
+   * @throws IOException
+   *           if the process cannot be launched, exits, or is not ready within the startup timeout; the process is
+   *           stopped in that case
+   */
+  public Started startServer() throws IOException {
+    Launched promoted = takeStandby();
+    if (promoted != null) {
+      Node node = register(promoted);
+      LOGGER.log(Level.INFO, "Promoted standby server {0} ({1} left)", new Object[] { node.getId(), standby.size() });
+      replenishStandby();
+      return new Started(node, true);
+    }
+    return new Started(register(launch()), false);
   }
 
-  /** Start a new server instance */
-  public Node startServer() throws IOException {
-    int port = nextPort++;
+  /** Launch a backend process and wait until it is ready, without listing it */
+  private Launched launch() throws IOException {
+    int port = nextPort.getAndIncrement();
     String nodeId = "server-" + port;
 
     String command = config.getServerCommand().replace("{PORT}", String.valueOf(port));
@@ -58,21 +101,112 @@ public class ServerManager {
       }
     }).start();
 
-    serverProcesses.put(nodeId, process);
     Node node = new Node(nodeId, "localhost", port);
-    nodes.put(nodeId, node);
-
-    // Wait a bit for the server to start
+    long startNanos = System.nanoTime();
     try {
-      Thread.sleep(2000);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
+      awaitReady(node, process);
+    } catch (IOException e) {
+      process.destroy();
+      throw e;
     }
 
-    LOGGER.log(Level.INFO, "Server {0} started on port {1}", new Object[] { nodeId, port });
+    LOGGER.log(Level.INFO, "Server {0} ready on port {1} after {2}ms",
+      new Object[] { nodeId, String.valueOf(port), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) });
+    return new Launched(node, process);
+  }
+
+  /** List a ready server under a fresh node, so a demoted server comes back without its old metrics */
+  private Node register(Launched server) {
+    Node node = new Node(server.node().getId(), server.node().getHost(), server.node().getPort());
+    serverProcesses.put(node.getId(), server.process());
+    nodes.put(node.getId(), node);
     return node;
   }
 
+  /** First standby in the pool whose process is still alive, or null if there is none */
+  private Launched takeStandby() {
+    Launched server;
+    while ((server = standby.pollFirst()) != null) {
+      if (server.process().isAlive()) {
+        return server;
+      }
+      LOGGER.log(Level.WARNING, "Standby server {0} has exited, discarding it", server.node().getId());
+    }
+    return null;
+  }
+
+  /** Launch and warm standby servers in the background until the pool holds standby.pool.size of them */
+  public void replenishStandby() {
+    int poolSize = config.getStandbyPoolSize();
+    if (poolSize <= 0 || shuttingDown) {
+      return;
+    }
+    standbyExecutor.execute(() -> {
+      while (!shuttingDown && standby.size() < poolSize) {
+        Launched server;
+        try {
+          server = launch();
+        } catch (IOException e) {
+          LOGGER.log(Level.WARNING, "Could not start a standby server: {0}", e.getMessage());
+          return;
+        }
+        warmUp(server.node());
+        if (shuttingDown) {
+          server.process().destroy();
+          return;
+        }
+        standby.addLast(server);
+        LOGGER.log(Level.INFO, "Standby server {0} warmed up ({1} in pool)",
+          new Object[] { server.node().getId(), standby.size() });
+      }
+    });
+  }
+
+  /** Send standby.warmup.requests synthetic requests so the backend's request path is JIT-compiled before it serves */
+  private void warmUp(Node node) {
+    long startNanos = System.nanoTime();
+    int requests = config.getStandbyWarmupRequests();
+    for (int i = 0; i < requests && !shuttingDown; i++) {
+      try {
+        URL url = URI.create("http://" + node.getAddress() + "/warmup/" + (i % 64)).toURL();
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setConnectTimeout(2000);
+        conn.setReadTimeout(2000);
+        // A reused connection stalls each small response on delayed ACKs; fresh connections are far faster here
+        conn.setRequestProperty("Connection", "close");
+        try (InputStream body = conn.getInputStream()) {
+          body.readAllBytes();
+        }
+      } catch (IOException e) {
+        LOGGER.log(Level.FINE, "Warm-up request to {0} failed: {1}", new Object[] { node.getId(), e.getMessage() });
+      }
+    }
+    LOGGER.log(Level.FINE, "Warmed up {0} with {1} requests in {2}ms",
+      new Object[] { node.getId(), requests, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) });
+  }
+
+  /** Poll the node's /health endpoint until it answers 200, the process exits, or the startup timeout passes */
+  private void awaitReady(Node node, Process process) throws IOException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getServerStartupTimeoutMs());
+    long pollMs = Math.max(1, config.getServerReadinessPollMs());
+    while (!isServerHealthy(node)) {
+      if (!process.isAlive()) {
+        throw new IOException("Server " + node.getId() + " exited with code " + process.exitValue()
+          + " before becoming ready");
+      }
+      if (System.nanoTime() > deadline) {
+        throw new IOException("Server " + node.getId() + " not ready within " + config.getServerStartupTimeoutMs()
+          + "ms");
+      }
+      try {
+        Thread.sleep(pollMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for server " + node.getId(), e);
+      }
+    }
+  }
+
   /** Stop a server instance */
   public void stopServer(String nodeId) {
     Process process = serverProcesses.get(nodeId);
@@ -84,11 +218,48 @@ public class ServerManager {
     }
   }
 
+  /**
+   * Take a drained server out of service. With standby.demote enabled it joins the front of the standby pool, warm,
+   * if the pool has room and it still answers /health; otherwise it is stopped.
+   */
+  public void retireServer(String nodeId) {
+    Node node = nodes.get(nodeId);
+    Process process = serverProcesses.get(nodeId);
+    if (node != null && process != null && config.isStandbyDemoteEnabled() && !shuttingDown
+      && standby.size() < config.getStandbyPoolSize() && process.isAlive() && isServerHealthy(node)) {
+      serverProcesses.remove(nodeId);
+      nodes.remove(nodeId);
+      standby.addFirst(new Launched(node, process));
+      LOGGER.log(Level.INFO, "Server {0} demoted to standby ({1} in pool)", new Object[] { nodeId, standby.size() });
+      return;
+    }
+    stopServer(nodeId);
+  }
+
   /** Get all active nodes */
   public Collection<Node> getNodes() {
     return new ArrayList<>(nodes.values());
   }
 
+  /**
+   * Live, read-only view of the active nodes for hot read paths that must not copy. Iteration is weakly consistent, so
+   * it may or may not see nodes added or removed meanwhile.
+   */
+  public Collection<Node> getNodesView() {
+    return nodesView;
+  }
+
+  /** Get the nodes that are not being drained, in the same order as {@link #getNodes()} */
+  public List<Node> getServingNodes() {
+    List<Node> serving = new ArrayList<>();
+    for (Node node : nodes.values()) {
+      if (!node.isDraining()) {
+        serving.add(node);
+      }
+    }
+    return serving;
+  }
+
   /** Get a specific node */
   public Node getNode(String nodeId) {
     return nodes.get(nodeId);
@@ -113,16 +284,33 @@ public class ServerManager {
     }
   }
 
-  /** Shutdown all servers */
+  /** Shutdown all servers, standbys included */
   public void shutdownAll() {
     LOGGER.info("Shutting down all servers...");
+    shuttingDown = true;
+    standbyExecutor.shutdownNow();
+    Launched server;
+    while ((server = standby.pollFirst()) != null) {
+      server.process().destroy();
+    }
     for (String nodeId : new ArrayList<>(serverProcesses.keySet())) {
       stopServer(nodeId);
     }
   }
 
-  /** Get server count */
+  /** Get server count, not counting servers that are being drained */
   public int getServerCount() {
-    return nodes.size();
+    int count = 0;
+    for (Node node : nodes.values()) {
+      if (!node.isDraining()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Warm standby servers waiting outside the ring */
+  public int getStandbyCount() {
+    return standby.size();
   }
 }
@@ -19,6 +19,13 @@ public class MurmurHash {
     return hash64(data, 0, data.length, SEED);
   }
 
+  /**
+   * Hash a slice of raw bytes with the default seed, so byte-level keys land on the same ring as string keys
+   */
+  public static long hash64(byte[] data, int offset, int length) {
+    return hash64(data, offset, length, SEED);
+  }
+
   /**
    * MurmurHash3 128-bit variant, returning first 64 bits
    */
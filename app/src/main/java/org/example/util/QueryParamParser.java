@@ -72,6 +72,29 @@ public class QueryParamParser {
     }
   }
 
+  /**
+   * Get a long parameter value from query string.
+   *
+   * @param query
+   *          The query string
+   * @param paramName
+   *          The parameter name to retrieve
+   * @param defaultValue
+   *          Default value if parameter is missing or invalid
+   * @return The long parameter value, or defaultValue if not found/invalid
+   */
+  public static long getLongParam(String query, String paramName, long defaultValue) {
+    String value = getParam(query, paramName);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
   private static String decode(String encoded) {
     try {
       return URLDecoder.decode(encoded, StandardCharsets.UTF_8);